@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mazurov.errorz;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+class Codes {
+
+    /**
+     * Creates a random encoded code word by name
+     * @param name one of Vandermonde, Mazurov, Cauchy, Lagrange, BlockCode2D
+     * @param n block length (row and column length for BlockCode2D)
+     * @param k message length (row and column message length for BlockCode2D)
+     * @return code word
+     */
+    static BlockCode create(String name, int n, int k) {
+        switch (name) {
+            case "Vandermonde":
+                return new Vandermonde(n, k);
+            case "Mazurov":
+                return new Mazurov(n, k);
+            case "Cauchy":
+                return new Cauchy(n, k, new Mazurov());
+            case "Lagrange":
+                return new Lagrange(n, k, new Mazurov());
+            case "BlockCode2D":
+                return new BlockCode2D(n, k, n, k, new Mazurov());
+            default:
+                throw new IllegalArgumentException("Unknown code: " + name);
+        }
+    }
+
+    /**
+     * Copies the whole code word into an array
+     */
+    static long[] save(BlockCode code) {
+        long[] x = new long[code.getBlockLength()];
+        for (int i = 0; i < x.length; ++i) {
+            x[i] = code.getAt(i);
+        }
+        return x;
+    }
+
+    /**
+     * Restores the whole code word from an array
+     */
+    static void restore(BlockCode code, long[] x) {
+        for (int i = 0; i < x.length; ++i) {
+            code.setAt(i, x[i]);
+        }
+    }
+}
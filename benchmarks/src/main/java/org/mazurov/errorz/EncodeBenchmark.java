@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mazurov.errorz;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodeBenchmark {
+
+    @Param({"Vandermonde", "Mazurov", "Cauchy", "Lagrange", "BlockCode2D"})
+    public String code;
+
+    @Param({"256"})
+    public int n;
+
+    @Param({"240"})
+    public int k;
+
+    private BlockCode word;
+
+    @Setup
+    public void setup() {
+        Random.reset();
+        word = Codes.create(code, n, k);
+    }
+
+    @Benchmark
+    public void encode(Throughput tp) {
+        word.encode();
+        tp.add(word);
+    }
+}
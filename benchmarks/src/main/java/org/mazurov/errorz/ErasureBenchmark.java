@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mazurov.errorz;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErasureBenchmark {
+
+    @Param({"Vandermonde", "Mazurov", "Cauchy", "Lagrange", "BlockCode2D"})
+    public String code;
+
+    @Param({"256"})
+    public int n;
+
+    @Param({"240"})
+    public int k;
+
+    @Param({"1", "4", "16"})
+    public int erasures;
+
+    private BlockCode word;
+    private long[] original;
+    private int[] idx;
+
+    @Setup
+    public void setup() {
+        Random.reset();
+        word = Codes.create(code, n, k);
+        original = Codes.save(word);
+        idx = TestUtils.addErrors(word.clone(), erasures);
+    }
+
+    /**
+     * Overwrites erased symbols outside of the measured section
+     */
+    @Setup(Level.Invocation)
+    public void erase() {
+        for (int i : idx) {
+            word.setAt(i, ~original[i]);
+        }
+    }
+
+    @Benchmark
+    public void decode(Throughput tp) {
+        word.decode(idx);
+        tp.add(word);
+    }
+
+    @TearDown
+    public void check() {
+        for (int i = 0; i < original.length; ++i) {
+            if (word.getAt(i) != original[i]) {
+                throw new IllegalStateException(word + ": erasure decoding failed");
+            }
+        }
+    }
+}
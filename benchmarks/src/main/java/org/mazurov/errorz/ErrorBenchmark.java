@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mazurov.errorz;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorBenchmark {
+
+    // Number of differently corrupted words decoded in turn
+    private static final int POOL = 16;
+
+    @Param({"Vandermonde", "Mazurov", "Cauchy", "Lagrange", "BlockCode2D"})
+    public String code;
+
+    @Param({"256"})
+    public int n;
+
+    @Param({"240"})
+    public int k;
+
+    @Param({"0", "4", "8"})
+    public int errors;
+
+    private BlockCode word;
+    private long[][] corrupted;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random.reset();
+        word = Codes.create(code, n, k);
+        corrupted = new long[POOL][];
+        for (int i = 0; i < POOL; ++i) {
+            BlockCode tmp = word.clone();
+            TestUtils.addErrors(tmp, errors);
+            corrupted[i] = Codes.save(tmp);
+        }
+    }
+
+    /**
+     * Corrupts the word with the next error pattern outside of the measured section
+     */
+    @Setup(Level.Invocation)
+    public void corrupt() {
+        Codes.restore(word, corrupted[next]);
+        next = (next + 1) % POOL;
+    }
+
+    @Benchmark
+    public boolean decode(Throughput tp) {
+        boolean res = word.decode();
+        tp.add(word);
+        return res;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mazurov.errorz;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GF64Benchmark {
+
+    private static final int SIZE = 1024;
+
+    private final long[] A = new long[SIZE];
+    private final long[] B = new long[SIZE];
+
+    @Setup
+    public void setup() {
+        Random.reset();
+        for (int i = 0; i < SIZE; ++i) {
+            A[i] = Random.nextLong();
+            B[i] = Random.nextLong() | 1;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long GFmul() {
+        long r = 0;
+        for (int i = 0; i < SIZE; ++i) {
+            r ^= GF64.GFmul(A[i], B[i]);
+        }
+        return r;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long GFdiv() {
+        long r = 0;
+        for (int i = 0; i < SIZE; ++i) {
+            r ^= GF64.GFdiv(A[i], B[i]);
+        }
+        return r;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long GFpow() {
+        long r = 0;
+        for (int i = 0; i < SIZE; ++i) {
+            r ^= GF64.GFpow(A[i], B[i]);
+        }
+        return r;
+    }
+}
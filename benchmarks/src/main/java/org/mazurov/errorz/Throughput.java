@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mazurov.errorz;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Secondary results reported by throughput benchmarks as words/s and MB/s
+ *
+ */
+
+@State(org.openjdk.jmh.annotations.Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+
+    public long words;
+    public double MB;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        words = 0;
+        MB = 0;
+    }
+
+    /**
+     * Accounts for one processed code word
+     * @param code code word
+     */
+    void add(BlockCode code) {
+        words += 1;
+        MB += code.getBlockLength() * 8 / 1e6;
+    }
+}
@@ -16,6 +16,10 @@
 
 package org.mazurov.errorz;
 
+import java.util.SplittableRandom;
+
+import static org.mazurov.errorz.GF64.*;
+
 /**
  * Project ErrorZ
  *
@@ -23,7 +27,20 @@ package org.mazurov.errorz;
  *
  */
 
-public abstract class BaseBlockCode implements BlockCode {
+public abstract class BaseBlockCode implements BlockCode, WordFactory {
+
+    // Largest parity generator matrix worth caching, in elements
+    private static final long MAX_GENERATOR = 1 << 20;
+
+    // Parity generator matrices shared by all code words with the same code id, up to 32MB in total
+    private static final CodeCache<long[][]> GENERATORS =
+            new CodeCache<>(4 * MAX_GENERATOR, G -> G.length == 0 ? 0 : (long)G.length * G[0].length);
+
+    // Random linear combinations of parity checks, one per code id, up to 32MB in total
+    private static final CodeCache<long[]> CHECKS = new CodeCache<>(4 * MAX_GENERATOR, W -> W.length);
+
+    // Code names accepted by forName
+    static final String CODE_NAMES = "vandermonde|mazurov|mazurov4|mazurov16|mazurov32";
 
     protected int N, K;
     protected long[] X;
@@ -102,15 +119,186 @@ public abstract class BaseBlockCode implements BlockCode {
      */
     public abstract BaseBlockCode newInstance(int n, int k, long[] x, int offset, int step);
 
+    @Override
+    public BlockCode newWord(long[] x, int offset, int step) {
+        return newInstance(N, K, x, offset, step);
+    }
+
     /**
-     * Encode the code word by fixing erasures at K .. N-1
+     * Base code by name, as given on command lines
+     * @param name one of {@link #CODE_NAMES}, case insensitive
+     * @return prototype code word
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    static BaseBlockCode forName(String name) {
+        String lname = name.toLowerCase();
+        switch (lname) {
+            case "vandermonde": return new Vandermonde();
+            case "mazurov": return new Mazurov();
+        }
+        if (lname.matches("mazurov(4|8|16|32)")) {
+            // Mazurov code over subfield GF(2^d)
+            return Mazurov.withSubfield(Integer.parseInt(lname.substring(7)));
+        }
+        throw new IllegalArgumentException("Unknown code: " + name);
+    }
+
+    /**
+     * Identifies the code for sharing precomputed data between code words
+     * @return a string unique to the code locators and parameters
+     */
+    protected String getCodeId() {
+        return getClass().getName() + "(" + N + "," + K + ")";
+    }
+
+    /**
+     * Checks whether another code word belongs to the same code
+     * @param other code word
+     * @return true if both code words have the same type, locators and parameters
+     */
+    boolean isSameCode(BaseBlockCode other) {
+        return getClass() == other.getClass() && N == other.N && K == other.K;
+    }
+
+    /**
+     * Checks whether the parity generator matrix is small enough to be built and cached
+     * @return true if (N-K) x K does not exceed the limit
+     */
+    protected boolean hasGenerator() {
+        return (long)K * (N - K) <= MAX_GENERATOR;
+    }
+
+    /**
+     * Parity generator matrix: {@code X[K+i] = sum over j of G[i][j] * X[j]}
+     * @return (N-K) x K matrix shared by all code words with the same code id
+     */
+    protected long[][] getGenerator() {
+        return GENERATORS.get(getCodeId(), id -> buildGenerator());
+    }
+
+    /**
+     * Builds the generator matrix in closed form. Parity checks sum over i of X[i]*Z[i]^s = 0,
+     * 0 <= s < N-K, hold for every polynomial of degree below N-K in place of Z^s; with
+     * P(z) = prod over parity locators of (z - Z[q]) and f(z) = P(z) / (z - Z[p]) they give
+     * G[p][j] = P(Z[j]) / (P'(Z[p]) * (Z[j] - Z[p])), one batch inversion per parity row
+     * @return (N-K) x K parity generator matrix
+     */
+    private long[][] buildGenerator() {
+        // P at message locators
+        long[] u = new long[K];
+        for (int j = 0; j < K; ++j) {
+            long zj = getLocator(j);
+            long val = UNIT;
+            for (int q = K; q < N; ++q) {
+                val = GFmul(val, GFsub(zj, getLocator(q)));
+            }
+            u[j] = val;
+        }
+
+        long[][] G = new long[N - K][K];
+        long[] d = new long[K];
+        for (int p = K; p < N; ++p) {
+            long zp = getLocator(p);
+            long dp = UNIT;     // P'(Z[p])
+            for (int q = K; q < N; ++q) {
+                if (q != p) dp = GFmul(dp, GFsub(zp, getLocator(q)));
+            }
+            for (int j = 0; j < K; ++j) {
+                d[j] = GFmul(dp, GFsub(getLocator(j), zp));
+            }
+            long[] row = G[p - K];
+            GFrev(d, row, K);
+            for (int j = 0; j < K; ++j) {
+                row[j] = GFmul(row[j], u[j]);
+            }
+        }
+        return G;
+    }
+
+    /**
+     * Encode the code word by multiplying the message by the generator matrix,
+     * or by erasure decoding if the matrix is too large
      */
     @Override
     public void encode() {
-        int[] idx = new int[N - K];
-        for (int i = 0; i < idx.length; ++i) {
-            idx[i] = K + i;
+        if (!hasGenerator()) {
+            // Long codes: parity symbols are recovered as erasures
+            int[] idx = new int[N - K];
+            for (int i = 0; i < idx.length; ++i) {
+                idx[i] = K + i;
+            }
+            decode(idx);
+            return;
+        }
+        long[][] G = getGenerator();
+        for (int i = 0; i < G.length; ++i) {
+            X[IDX(K + i)] = dot(G[i], 0, 1, X, offset, step, K);
+        }
+    }
+
+    /**
+     * Verify by computing syndromes {@code S[s] = sum over i of X[i]*Z[i]^s} one at a time,
+     * stopping at the first non-zero one. With locators Z[0] = 0, Z[i] = beta^(i-1)
+     * a syndrome is the polynomial with coefficients X[1..N-1] at beta^s, plus X[0] for s = 0,
+     * evaluated by Horner's rule in O(N) without a generator matrix or a copy of the word
+     * @return true if the code word is valid
+     */
+    @Override
+    public boolean verify() {
+        long beta = N > 2 ? getLocator(2) : UNIT;
+        long y = UNIT;
+        for (int s = 0; s < N - K; ++s) {
+            long v = ZERO;
+            for (int i = N - 1; i > 0; --i) {
+                v = GFadd(GFmul(v, y), X[IDX(i)]);
+            }
+            if (s == 0) {
+                v = GFadd(v, X[IDX(0)]);
+            }
+            if (v != ZERO) return false;
+            y = GFmul(y, beta);
+        }
+        return true;
+    }
+
+    /**
+     * Verify with a random linear combination of parity checks {@code sum over i of r[i]*(X[K+i] - G[i]*X)},
+     * a single dot product with weights chosen once per code id; codes too long for a generator
+     * matrix are verified by syndromes
+     * @return false if the code word is not valid, true if it is valid with high probability
+     */
+    @Override
+    public boolean verifyProbabilistic() {
+        if (!hasGenerator()) return verify();
+        long[] W = CHECKS.get(getCodeId(), id -> buildCheck());
+        return dot(W, 0, 1, X, offset, step, N) == ZERO;
+    }
+
+    private long[] buildCheck() {
+        long[][] G = getGenerator();
+        SplittableRandom rnd = new SplittableRandom();
+        long[] W = new long[N];
+        for (int i = 0; i < G.length; ++i) {
+            long r;
+            do {
+                r = rnd.nextLong();
+            } while (r == ZERO);
+            W[K + i] = r;
+            mulAdd(W, 0, 1, G[i], 0, 1, K, r);
+        }
+        return W;
+    }
+
+    /**
+     * Checks whether the first n elements of an array are zero
+     * @param a array
+     * @param n number of elements
+     * @return true if all are zero
+     */
+    protected static boolean isZero(long[] a, int n) {
+        for (int i = 0; i < n; ++i) {
+            if (a[i] != ZERO) return false;
         }
-        decode(idx);
+        return true;
     }
 }
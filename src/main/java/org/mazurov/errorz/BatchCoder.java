@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Encodes or decodes many independent code words in parallel.
+ * Words are split into contiguous chunks, each processed by one task with its own
+ * {@link DecodeWorkspace}; tasks run on a pluggable executor: the common fork/join pool
+ * by default, a fixed thread pool, or a virtual-thread-per-task executor on Java 21+.
+ * Every task writes outcomes of its own words only, so results need no locking.
+ *
+ */
+
+public class BatchCoder {
+
+    // Minimum number of symbols per chunk to amortize task overhead
+    private static final int MIN_CHUNK_SYMBOLS = 1 << 14;
+
+    // Chunks per thread of parallelism for load balancing
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Executor executor;
+    private final int parallelism;
+
+    /**
+     * Creates a batch coder running on the common fork/join pool
+     */
+    public BatchCoder() {
+        this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Creates a batch coder
+     * @param executor executor running chunk tasks
+     * @param parallelism expected number of concurrently running tasks
+     */
+    public BatchCoder(Executor executor, int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public String toString() {
+        return "Batch coder [" + executor + "] parallelism=" + parallelism;
+    }
+
+    /**
+     * Encodes words
+     * @param words code words, processed in place
+     * @return batch result
+     */
+    public BatchResult encodeAll(BlockCode[] words) {
+        return run(words.length, maxLength(words), (from, to, ok) -> {
+            for (int i = from; i < to; ++i) {
+                words[i].encode();
+                ok[i] = true;
+            }
+        });
+    }
+
+    public BatchResult encodeAll(List<? extends BlockCode> words) {
+        return encodeAll(words.toArray(new BlockCode[0]));
+    }
+
+    /**
+     * Encodes words stored back to back in an arena
+     * @param spec code spec
+     * @param arena array of {@code count * n} symbols
+     * @param count number of words
+     * @return batch result
+     */
+    public BatchResult encodeAll(CodeSpec spec, long[] arena, int count) {
+        int n = spec.getBlockLength();
+        checkArena(spec, arena, count);
+        return run(count, n, (from, to, ok) -> {
+            for (int i = from; i < to; ++i) {
+                spec.wrap(arena, i * n, 1).encode();
+                ok[i] = true;
+            }
+        });
+    }
+
+    /**
+     * Corrects errors in words
+     * @param words code words, processed in place
+     * @return batch result with successfully decoded words
+     */
+    public BatchResult decodeAll(BlockCode[] words) {
+        return run(words.length, maxLength(words), (from, to, ok) -> {
+            DecodeWorkspace ws = null;
+            for (int i = from; i < to; ++i) {
+                BlockCode word = words[i];
+                if (ws == null || ws.N != word.getBlockLength() || ws.K != word.getMessageLength()) {
+                    ws = new DecodeWorkspace(word.getBlockLength(), word.getMessageLength());
+                }
+                ok[i] = word.decode(ws);
+            }
+        });
+    }
+
+    public BatchResult decodeAll(List<? extends BlockCode> words) {
+        return decodeAll(words.toArray(new BlockCode[0]));
+    }
+
+    /**
+     * Corrects errors in words stored back to back in an arena
+     * @param spec code spec
+     * @param arena array of {@code count * n} symbols
+     * @param count number of words
+     * @return batch result with successfully decoded words
+     */
+    public BatchResult decodeAll(CodeSpec spec, long[] arena, int count) {
+        int n = spec.getBlockLength();
+        checkArena(spec, arena, count);
+        return run(count, n, (from, to, ok) -> {
+            DecodeWorkspace ws = spec.newWorkspace();
+            for (int i = from; i < to; ++i) {
+                ok[i] = spec.wrap(arena, i * n, 1).decode(ws);
+            }
+        });
+    }
+
+    /**
+     * Work on a range of words
+     */
+    private interface Chunk {
+        void run(int from, int to, boolean[] ok);
+    }
+
+    /**
+     * Splits words into chunks and runs them on the executor
+     * @param count number of words
+     * @param length symbols per word
+     * @param chunk work on a range of words
+     * @return batch result
+     */
+    private BatchResult run(int count, int length, Chunk chunk) {
+        long start = System.nanoTime();
+        boolean[] ok = new boolean[count];
+        int minSize = Math.max(1, MIN_CHUNK_SYMBOLS / Math.max(1, length));
+        int size = Math.max(minSize, (count + parallelism * CHUNKS_PER_THREAD - 1) / (parallelism * CHUNKS_PER_THREAD));
+        int chunks = (count + size - 1) / size;
+        if (chunks <= 1) {
+            chunk.run(0, count, ok);
+        }
+        else {
+            CompletableFuture<?>[] tasks = new CompletableFuture<?>[chunks];
+            for (int c = 0; c < chunks; ++c) {
+                int from = c * size;
+                int to = Math.min(count, from + size);
+                tasks[c] = CompletableFuture.runAsync(() -> chunk.run(from, to, ok), executor);
+            }
+            try {
+                // Completion of all tasks makes their writes to ok[] visible
+                CompletableFuture.allOf(tasks).join();
+            }
+            catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+                if (cause instanceof Error) throw (Error)cause;
+                throw e;
+            }
+        }
+        return new BatchResult(ok, Math.max(chunks, 1), System.nanoTime() - start);
+    }
+
+    private static int maxLength(BlockCode[] words) {
+        int len = 1;
+        for (BlockCode w : words) {
+            len = Math.max(len, w.getBlockLength());
+        }
+        return len;
+    }
+
+    private static void checkArena(CodeSpec spec, long[] arena, int count) {
+        if (count < 0 || (long)count * spec.getBlockLength() > arena.length) {
+            throw new IllegalArgumentException("Arena of length " + arena.length + " does not fit "
+                    + count + " words of " + spec.getBlockLength() + " symbols");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Outcome of a batch operation: per-word results and aggregate statistics.
+ *
+ */
+
+public final class BatchResult {
+
+    private final boolean[] ok;
+    private final int failed;
+    private final int chunks;
+    private final long nanos;
+
+    BatchResult(boolean[] ok, int chunks, long nanos) {
+        this.ok = ok;
+        this.chunks = chunks;
+        this.nanos = nanos;
+        int cnt = 0;
+        for (boolean b : ok) {
+            if (!b) cnt += 1;
+        }
+        failed = cnt;
+    }
+
+    @Override
+    public String toString() {
+        return "Batch result: words=" + ok.length + " failed=" + failed + " chunks=" + chunks
+                + " time=" + nanos / 1000 + "us";
+    }
+
+    public int getWordCount() {
+        return ok.length;
+    }
+
+    public int getFailedCount() {
+        return failed;
+    }
+
+    public int getChunkCount() {
+        return chunks;
+    }
+
+    public long getElapsedNanos() {
+        return nanos;
+    }
+
+    /**
+     * @param i word index
+     * @return true if word {@code i} has been successfully encoded or decoded
+     */
+    public boolean isOk(int i) {
+        return ok[i];
+    }
+}
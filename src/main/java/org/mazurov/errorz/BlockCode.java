@@ -54,6 +54,66 @@ public interface BlockCode {
      */
     boolean decode();
 
+    /**
+     * Fix erasures at locations provided in {@code idx[]} using scratch buffers of a workspace
+     * @param idx
+     * @param ws workspace matching the code parameters
+     */
+    default void decode(int[] idx, DecodeWorkspace ws) {
+        decode(idx);
+    }
+
+    /**
+     * Fix errors using scratch buffers of a workspace
+     * @param ws workspace matching the code parameters
+     * @return true if the code word has been successfully decoded
+     */
+    default boolean decode(DecodeWorkspace ws) {
+        return decode();
+    }
+
+    /**
+     * Fix erasures at locations provided in {@code idx[]} and unknown errors at other locations,
+     * as long as 2 * errors + erasures does not exceed the code redundancy
+     * (more errors may be corrected by codes over a subfield)
+     * @param idx
+     * @return true if the code word has been successfully decoded;
+     * erased values are undefined otherwise
+     */
+    boolean decodeErrata(int[] idx);
+
+    /**
+     * Same as {@link #decodeErrata(int[])} using scratch buffers of a workspace
+     * @param idx
+     * @param ws workspace matching the code parameters
+     * @return true if the code word has been successfully decoded
+     */
+    default boolean decodeErrata(int[] idx, DecodeWorkspace ws) {
+        return decodeErrata(idx);
+    }
+
+    /**
+     * Check whether the code word is valid
+     * @return true if the code word is a valid code word
+     */
+    default boolean verify() {
+        BlockCode copy = clone();
+        copy.encode();
+        for (int i = 0; i < getBlockLength(); ++i) {
+            if (copy.getAt(i) != getAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check whether the code word is valid with a single random linear combination of all checks;
+     * an invalid code word passes with probability about 2^-64
+     * @return false if the code word is not valid, true if it is valid with high probability
+     */
+    default boolean verifyProbabilistic() {
+        return verify();
+    }
+
     /**
      * Clone the current state of the code word
      * @return a full copy of the code word with no shared state with the original
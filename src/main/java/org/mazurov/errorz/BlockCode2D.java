@@ -17,7 +17,6 @@
 package org.mazurov.errorz;
 
 import java.util.Arrays;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
 /**
@@ -38,6 +37,13 @@ public class BlockCode2D implements BlockCode {
     private final BaseBlockCode[] rows;
     private final BaseBlockCode[] cols;
 
+    // Copy of a line being decoded, per thread
+    private final ThreadLocal<long[]> lineBuffer;
+
+    // Decoding workspaces for rows and columns, per thread
+    private final ThreadLocal<DecodeWorkspace> rowWorkspace;
+    private final ThreadLocal<DecodeWorkspace> colWorkspace;
+
     /**
      * Constructs a 2-dimensional code word
      * @param n1 length of a row (number of columns)
@@ -72,6 +78,9 @@ public class BlockCode2D implements BlockCode {
         for (int c = 0; c < cols.length; ++c) {
             cols[c] = baseCode.newInstance(NC, KC, X, c, NR);
         }
+        lineBuffer = ThreadLocal.withInitial(() -> new long[Math.max(NR, NC)]);
+        rowWorkspace = ThreadLocal.withInitial(() -> new DecodeWorkspace(NR, KR));
+        colWorkspace = ThreadLocal.withInitial(() -> new DecodeWorkspace(NC, KC));
 
         encode();
     }
@@ -95,6 +104,9 @@ public class BlockCode2D implements BlockCode {
         for (int c = 0; c < cols.length; ++c) {
             cols[c] = baseCode.newInstance(NC, KC, X, c, NR);
         }
+        lineBuffer = ThreadLocal.withInitial(() -> new long[Math.max(NR, NC)]);
+        rowWorkspace = ThreadLocal.withInitial(() -> new DecodeWorkspace(NR, KR));
+        colWorkspace = ThreadLocal.withInitial(() -> new DecodeWorkspace(NC, KC));
     }
 
     @Override
@@ -133,41 +145,232 @@ public class BlockCode2D implements BlockCode {
         Arrays.stream(cols).parallel().forEach(BaseBlockCode::encode);
     }
 
+    /**
+     * A product code word is valid if all its rows and columns are
+     */
+    @Override
+    public boolean verify() {
+        return Arrays.stream(rows).parallel().allMatch(BaseBlockCode::verify)
+                && Arrays.stream(cols).parallel().allMatch(BaseBlockCode::verify);
+    }
+
+    @Override
+    public boolean verifyProbabilistic() {
+        return Arrays.stream(rows).parallel().allMatch(BaseBlockCode::verifyProbabilistic)
+                && Arrays.stream(cols).parallel().allMatch(BaseBlockCode::verifyProbabilistic);
+    }
+
+    /**
+     * Iteratively fix erasures working in both dimensions: rows with at most NR - KR erasures
+     * are recovered in parallel, then columns with at most NC - KC remaining erasures, and so on
+     * @param idx - array of erased indices
+     * @throws IllegalArgumentException if the erasures cannot be recovered
+     */
     @Override
     public void decode(int[] idx) {
-        throw new RuntimeException("Unimplemented");
+        boolean[] erased = new boolean[X.length];
+        int[] inRow = new int[rows.length];
+        int[] inCol = new int[cols.length];
+        int left = 0;
+        for (int i : idx) {
+            if (erased[i]) continue;
+            erased[i] = true;
+            inRow[i / NR] += 1;
+            inCol[i % NR] += 1;
+            left += 1;
+        }
+        while (left > 0) {
+            int fixed = fixErasures(rows, rowWorkspace, NR, 1, NR - KR, inRow, inCol, erased);
+            left -= fixed;
+            if (left == 0) break;
+            int fixedC = fixErasures(cols, colWorkspace, 1, NR, NC - KC, inCol, inRow, erased);
+            left -= fixedC;
+            if (fixed + fixedC == 0) {
+                throw new IllegalArgumentException("Unrecoverable erasures: " + left);
+            }
+        }
     }
 
-    private static int count(boolean[] bb) {
-        int cnt = 0;
-        for (boolean b : bb) cnt += b ? 1 : 0;
-        return cnt;
+    /**
+     * Recovers in parallel every line with at most {@code maxErasures} erasures
+     * @param lines rows or columns
+     * @param workspace decoding workspaces of the lines, per thread
+     * @param lineStep distance between first symbols of adjacent lines
+     * @param step distance between adjacent symbols of a line
+     * @param maxErasures number of parity symbols in a line
+     * @param cnt erasure counts of lines
+     * @param crossCnt erasure counts of crossing lines
+     * @param erased erasure flags
+     * @return number of recovered symbols
+     */
+    private static int fixErasures(BaseBlockCode[] lines, ThreadLocal<DecodeWorkspace> workspace,
+                                   int lineStep, int step, int maxErasures,
+                                   int[] cnt, int[] crossCnt, boolean[] erased) {
+        int[] ready = IntStream.range(0, lines.length)
+                .filter(l -> cnt[l] > 0 && cnt[l] <= maxErasures)
+                .toArray();
+        if (ready.length == 0) return 0;
+
+        int len = lines[0].getBlockLength();
+        int[][] lists = new int[ready.length][];
+        for (int t = 0; t < ready.length; ++t) {
+            int l = ready[t];
+            lists[t] = erasures(l * lineStep, step, len, cnt[l], erased);
+        }
+
+        IntStream.range(0, ready.length).parallel()
+                .forEach(t -> lines[ready[t]].decode(lists[t], workspace.get()));
+
+        int fixed = 0;
+        for (int t = 0; t < ready.length; ++t) {
+            int l = ready[t];
+            for (int j : lists[t]) {
+                erased[l * lineStep + j * step] = false;
+                crossCnt[j] -= 1;
+            }
+            fixed += cnt[l];
+            cnt[l] = 0;
+        }
+        return fixed;
     }
 
     /**
-     * Iteratively fix errors working in both dimensions
+     * Erased positions of a line
+     * @param first index of the first symbol of the line
+     * @param step distance between adjacent symbols of the line
+     * @param len line length
+     * @param cnt number of erasures in the line
+     * @param erased erasure flags
+     * @return positions in the line
+     */
+    private static int[] erasures(int first, int step, int len, int cnt, boolean[] erased) {
+        int[] list = new int[cnt];
+        int n = 0;
+        for (int j = 0; n < cnt && j < len; ++j) {
+            if (erased[first + j * step]) list[n++] = j;
+        }
+        return list;
+    }
+
+    /**
+     * Iteratively fix errors working in both dimensions.
+     * After the first pass only lines crossing symbols corrected by the previous pass are retried:
+     * a line that failed to decode and has not changed since would fail again
      * @return {@code true} if fully decoded, {@code false} otherwise
      */
     @Override
     public boolean decode() {
+        return decodeErrata(new int[0]);
+    }
+
+    /**
+     * Iteratively fix erasures and errors working in both dimensions, as {@link #decode()} does:
+     * every line with at most as many erasures as its parity symbols is decoded with its erasures,
+     * and erasures recovered by a line are dropped from the crossing lines
+     * @param idx - array of erased indices
+     * @return {@code true} if fully decoded, {@code false} otherwise
+     */
+    @Override
+    public boolean decodeErrata(int[] idx) {
+        boolean[] erased = new boolean[X.length];
+        int[] inRow = new int[rows.length];
+        int[] inCol = new int[cols.length];
+        for (int i : idx) {
+            if (erased[i]) continue;
+            erased[i] = true;
+            inRow[i / NR] += 1;
+            inCol[i % NR] += 1;
+        }
+
         boolean[] fixedR = new boolean[rows.length];
         boolean[] fixedC = new boolean[cols.length];
+        boolean[] dirtyR = new boolean[rows.length];
+        boolean[] dirtyC = new boolean[cols.length];
+        Arrays.fill(dirtyR, true);
+        Arrays.fill(dirtyC, true);
+        int cntR = 0;
+        int cntC = 0;
+        int passes = 0;
         for (;;) {
-            AtomicInteger progress = new AtomicInteger(0);
-            IntStream.range(0, rows.length).parallel()
-                    .filter(r -> !fixedR[r])
-                    .forEach(r -> progress.getAndAdd((fixedR[r] = rows[r].decode()) ? 1 : 0));
-            int cnt = count(fixedR);
-            if (cnt == rows.length) return true;
-
-            IntStream.range(0, cols.length).parallel()
-                    .filter(c -> !fixedC[c])
-                    .forEach(c -> progress.getAndAdd((fixedC[c] = cols[c].decode()) ? 1 : 0));
-            cnt = count(fixedC);
-            if (cnt == cols.length) return true;
-
-            if (progress.get() == 0) break;
+            passes += 1;
+            int progress = fixErrors(rows, rowWorkspace, NR, 1, NR - KR, inRow, inCol, erased,
+                    fixedR, dirtyR, dirtyC);
+            cntR += progress;
+            if (cntR == rows.length) break;
+
+            passes += 1;
+            int progressC = fixErrors(cols, colWorkspace, 1, NR, NC - KC, inCol, inRow, erased,
+                    fixedC, dirtyC, dirtyR);
+            cntC += progressC;
+            if (cntC == cols.length) break;
+
+            if (progress + progressC == 0) {
+                DecoderStats.passes2D(passes);
+                return false;
+            }
+        }
+        DecoderStats.passes2D(passes);
+        return true;
+    }
+
+    /**
+     * Decodes in parallel every unfixed line marked dirty with at most {@code maxErasures} erasures
+     * @param lines rows or columns
+     * @param workspace decoding workspaces of the lines, per thread
+     * @param lineStep distance between first symbols of adjacent lines
+     * @param step distance between adjacent symbols of a line
+     * @param maxErasures number of parity symbols in a line
+     * @param cnt erasure counts of lines
+     * @param crossCnt erasure counts of crossing lines
+     * @param erased erasure flags
+     * @param fixed flags of successfully decoded lines
+     * @param dirty flags of lines changed since their last decoding attempt, cleared
+     * @param crossDirty flags of crossing lines, set for symbols changed by decoding
+     * @return number of newly fixed lines
+     */
+    private int fixErrors(BaseBlockCode[] lines, ThreadLocal<DecodeWorkspace> workspace,
+                          int lineStep, int step, int maxErasures, int[] cnt, int[] crossCnt, boolean[] erased,
+                          boolean[] fixed, boolean[] dirty, boolean[] crossDirty) {
+        int[] todo = IntStream.range(0, lines.length)
+                .filter(l -> dirty[l] && !fixed[l] && cnt[l] <= maxErasures)
+                .toArray();
+        if (todo.length == 0) return 0;
+
+        int len = lines[0].getBlockLength();
+        int[][] lists = new int[todo.length][];
+        for (int t = 0; t < todo.length; ++t) {
+            int l = todo[t];
+            dirty[l] = false;
+            lists[t] = erasures(l * lineStep, step, len, cnt[l], erased);
+        }
+
+        int progress = IntStream.range(0, todo.length).parallel().map(t -> {
+            BaseBlockCode line = lines[todo[t]];
+            long[] before = lineBuffer.get();
+            for (int j = 0; j < len; ++j) {
+                before[j] = line.getAt(j);
+            }
+            if (!line.decodeErrata(lists[t], workspace.get())) return 0;
+            fixed[todo[t]] = true;
+            for (int j = 0; j < len; ++j) {
+                if (line.getAt(j) != before[j]) {
+                    crossDirty[j] = true;
+                }
+            }
+            return 1;
+        }).sum();
+
+        // Recovered erasures, sequentially since crossing counts are shared
+        for (int t = 0; t < todo.length; ++t) {
+            int l = todo[t];
+            if (!fixed[l] || lists[t].length == 0) continue;
+            for (int j : lists[t]) {
+                erased[l * lineStep + j * step] = false;
+                crossCnt[j] -= 1;
+                crossDirty[j] = true;
+            }
+            cnt[l] = 0;
         }
-        return false;
+        return progress;
     }
 }
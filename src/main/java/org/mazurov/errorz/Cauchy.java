@@ -25,9 +25,54 @@ import static org.mazurov.errorz.GF64.*;
  *
  */
 
-public class Cauchy implements BlockCode {
+public class Cauchy implements BlockCode, WordFactory {
+
+    // Precomputed tables shared by all code words with the same delegate code id, up to 32MB in total
+    private static final CodeCache<Tables> TABLES = new CodeCache<>(1 << 22, Tables::size);
+
     private BaseBlockCode delegate; // Delegate block code
     private long[] coeff;   // Conversion coefficients
+    private long[] rcoeff;  // Reciprocals of conversion coefficients
+    private long[][] parity; // Parity matrix 1 / (Zj - Zi), or null for long codes
+
+    /**
+     * Conversion coefficients and the parity matrix of a code
+     */
+    private static final class Tables {
+        final long[] coeff;
+        final long[] rcoeff;
+        final long[][] parity;
+
+        Tables(BaseBlockCode base) {
+            int n = base.getBlockLength();
+            int k = base.getMessageLength();
+            rcoeff = new long[n];
+            for (int i = 0; i < n; ++i) {
+                long val = UNIT;
+                for (int j = k; j < n; ++j) {
+                    if (j == i) continue;
+                    val = GFmul(val, base.getLocator(i) ^ base.getLocator(j));
+                }
+                rcoeff[i] = val;
+            }
+            coeff = new long[n];
+            GFrev(rcoeff, coeff, n);
+            if (base.hasGenerator()) {
+                parity = new long[n - k][k];
+                long[] d = new long[k];
+                for (int i = k; i < n; ++i) {
+                    parityRow(base, i, d, parity[i - k]);
+                }
+            }
+            else {
+                parity = null;
+            }
+        }
+
+        long size() {
+            return 2L * coeff.length + (parity != null && parity.length > 0 ? (long)parity.length * parity[0].length : 0);
+        }
+    }
 
     private Cauchy() {}
 
@@ -37,26 +82,33 @@ public class Cauchy implements BlockCode {
     }
 
     public Cauchy(int n, int k, long[] x, int offset, int step, BaseBlockCode base) {
-        coeff = new long[n];
-        for (int i = 0; i < coeff.length; ++i) {
-            long val = UNIT;
-            for (int j = k; j < coeff.length; ++j) {
-                if (j == i) continue;
-                val = GFdiv(val, base.getLocator(i) ^ base.getLocator(j));
-            }
-            coeff[i] = val;
-        }
         delegate = base.newInstance(n, k, x, offset, step);
+        Tables t = TABLES.get(delegate.getCodeId(), id -> new Tables(delegate));
+        coeff = t.coeff;
+        rcoeff = t.rcoeff;
+        parity = t.parity;
     }
 
     @Override
     public BlockCode clone() {
         Cauchy clone = new Cauchy();
         clone.coeff = coeff;    // read only, no need to compute again
+        clone.rcoeff = rcoeff;
+        clone.parity = parity;
         clone.delegate = delegate.clone();
         return clone;
     }
 
+    @Override
+    public BlockCode newWord(long[] x, int offset, int step) {
+        Cauchy word = new Cauchy();
+        word.coeff = coeff;     // read only, shared
+        word.rcoeff = rcoeff;
+        word.parity = parity;
+        word.delegate = delegate.newInstance(delegate.getBlockLength(), delegate.getMessageLength(), x, offset, step);
+        return word;
+    }
+
     @Override
     public String toString() {
         return "Cauchy-RS code [" + delegate + ']';
@@ -83,47 +135,114 @@ public class Cauchy implements BlockCode {
     }
 
     /**
-     * Encode using Cauchy method
+     * Row of the Cauchy parity matrix
+     * @param base code providing locators
+     * @param i parity index
+     * @param d scratch array of length k
+     * @param r receives r[j] = 1 / (Zj - Zi)
+     */
+    private static void parityRow(BaseBlockCode base, int i, long[] d, long[] r) {
+        long Zi = base.getLocator(i);
+        for (int j = 0; j < d.length; ++j) {
+            d[j] = GFsub(base.getLocator(j), Zi);
+        }
+        GFrev(d, r, d.length);
+    }
+
+    /**
+     * Encode using Cauchy method: a multiply-accumulate pass over the precomputed parity matrix,
+     * or rows computed on the fly for codes too long to keep the matrix
      */
     @Override
     public void encode() {
-        int N = delegate.getBlockLength();
-        int K = delegate.getMessageLength();
-        for (int i = K; i < N; ++i) {
-            long X = ZERO;
-            long Zi = delegate.getLocator(i);
-            for (int j = 0; j < K; ++j) {
-                long Zj = delegate.getLocator(j);
-                X ^= GFdiv(delegate.getAt(j), GFsub(Zj, Zi));
+        BaseBlockCode c = delegate;
+        int N = c.getBlockLength();
+        int K = c.getMessageLength();
+        if (parity != null) {
+            for (int i = K; i < N; ++i) {
+                c.X[c.IDX(i)] = dot(parity[i - K], 0, 1, c.X, c.offset, c.step, K);
             }
-            delegate.setAt(i, X);
+            return;
+        }
+        long[] d = new long[K];
+        long[] r = new long[K];
+        for (int i = K; i < N; ++i) {
+            parityRow(c, i, d, r);
+            c.X[c.IDX(i)] = dot(r, 0, 1, c.X, c.offset, c.step, K);
         }
     }
 
     @Override
     public void decode(int[] idx) {
-        long[] X = new long[delegate.getBlockLength()];
-        for (int i = 0; i < X.length; ++i) {
-            X[i] = GFmul(delegate.getAt(i), coeff[i]);
+        decode(idx, new DecodeWorkspace(getBlockLength(), getMessageLength()));
+    }
+
+    @Override
+    public void decode(int[] idx, DecodeWorkspace ws) {
+        BaseBlockCode tmp = convert(ws);
+        tmp.decode(idx, ws);
+        restore(tmp);
+    }
+
+    @Override
+    public boolean decode() {
+        return decode(new DecodeWorkspace(getBlockLength(), getMessageLength()));
+    }
+
+    @Override
+    public boolean decode(DecodeWorkspace ws) {
+        BaseBlockCode tmp = convert(ws);
+        DecoderStats.attribute(ws, this);
+        try {
+            if (!tmp.decode(ws)) return false;
         }
-        BaseBlockCode tmp = delegate.newInstance(delegate.getBlockLength(), delegate.getMessageLength(), X, 0, 1);
-        tmp.decode(idx);
-        for (int i = 0; i < delegate.getBlockLength(); ++i) {
-            delegate.setAt(i, GFdiv(tmp.getAt(i), coeff[i]));
+        finally {
+            DecoderStats.attribute(ws, null);
         }
+        restore(tmp);
+        return true;
     }
 
     @Override
-    public boolean decode() {
-        long[] X = new long[delegate.getBlockLength()];
+    public boolean decodeErrata(int[] idx) {
+        return decodeErrata(idx, new DecodeWorkspace(getBlockLength(), getMessageLength()));
+    }
+
+    @Override
+    public boolean decodeErrata(int[] idx, DecodeWorkspace ws) {
+        BaseBlockCode tmp = convert(ws);
+        DecoderStats.attribute(ws, this);
+        try {
+            if (!tmp.decodeErrata(idx, ws)) return false;
+        }
+        finally {
+            DecoderStats.attribute(ws, null);
+        }
+        restore(tmp);
+        return true;
+    }
+
+    /**
+     * Converts the code word to the delegate code over the workspace
+     * @param ws workspace
+     * @return delegate code word
+     */
+    private BaseBlockCode convert(DecodeWorkspace ws) {
+        ws.check(this);
+        long[] X = ws.converted();
         for (int i = 0; i < X.length; ++i) {
             X[i] = GFmul(delegate.getAt(i), coeff[i]);
         }
-        BaseBlockCode tmp = delegate.newInstance(delegate.getBlockLength(), delegate.getMessageLength(), X, 0, 1);
-        if (!tmp.decode()) return false;
+        return ws.view(delegate);
+    }
+
+    /**
+     * Converts a decoded delegate code word back
+     * @param tmp delegate code word
+     */
+    private void restore(BaseBlockCode tmp) {
         for (int i = 0; i < delegate.getBlockLength(); ++i) {
-            delegate.setAt(i, GFdiv(tmp.getAt(i), coeff[i]));
+            delegate.setAt(i, GFmul(tmp.getAt(i), rcoeff[i]));
         }
-        return true;
     }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Precomputed data shared by all code words with the same code id.
+ * Lookups are lock-free; the cache is cleared when a new entry would take
+ * the total size over the budget, so it never holds more than one budget
+ * besides a single oversized entry.
+ *
+ */
+
+final class CodeCache<V> {
+
+    private final ConcurrentHashMap<String, V> map = new ConcurrentHashMap<>();
+    private final ToLongFunction<V> sizeOf;
+    private final long budget;
+    private long size;      // guarded by this
+
+    /**
+     * Creates an empty cache
+     * @param budget maximum total size of entries, in the units of sizeOf
+     * @param sizeOf entry size, f.e. number of elements
+     */
+    CodeCache(long budget, ToLongFunction<V> sizeOf) {
+        this.budget = budget;
+        this.sizeOf = sizeOf;
+    }
+
+    /**
+     * Returns the cached entry, building it on a miss; concurrent misses may build it
+     * more than once, but only the first entry is kept
+     * @param id code id
+     * @param build entry builder
+     * @return shared entry
+     */
+    V get(String id, Function<String, V> build) {
+        V val = map.get(id);
+        if (val != null) return val;
+        val = build.apply(id);
+        long s = sizeOf.applyAsLong(val);
+        synchronized (this) {
+            V prev = map.get(id);
+            if (prev != null) return prev;
+            if (size + s > budget) {
+                map.clear();
+                size = 0;
+            }
+            map.put(id, val);
+            size += s;
+        }
+        return val;
+    }
+
+    /**
+     * @return number of cached entries
+     */
+    int size() {
+        return map.size();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Immutable description of a code: its type, parameters and precomputed data.
+ * A spec is thread-safe; any number of threads may create word handles over their own
+ * storage and encode or decode them concurrently, each thread with its own {@link DecodeWorkspace}.
+ *
+ */
+
+public final class CodeSpec {
+
+    private final WordFactory prototype;    // code word over private storage, never modified
+    private final int N;
+    private final int K;
+    private final String name;
+
+    private CodeSpec(WordFactory prototype, BlockCode word) {
+        this.prototype = prototype;
+        N = word.getBlockLength();
+        K = word.getMessageLength();
+        name = word.toString();
+
+        // Build shared tables now rather than on the first encode by some thread
+        if (word instanceof BaseBlockCode) {
+            BaseBlockCode base = (BaseBlockCode)word;
+            if (base.hasGenerator()) {
+                base.getGenerator();
+            }
+        }
+    }
+
+    /**
+     * Spec of the code a code word belongs to
+     * @param word code word, its contents are ignored
+     * @return code spec
+     * @throws IllegalArgumentException if the code does not support word handles
+     */
+    public static CodeSpec of(BlockCode word) {
+        if (!(word instanceof WordFactory)) {
+            throw new IllegalArgumentException("Code words cannot be created over external storage: " + word);
+        }
+        BlockCode proto = ((WordFactory)word).newWord(new long[word.getBlockLength()], 0, 1);
+        return new CodeSpec((WordFactory)proto, proto);
+    }
+
+    /**
+     * Spec of a code of the same type as a base code
+     * @param base base code, e.g. {@code new Mazurov()}
+     * @param n block length
+     * @param k message length
+     * @return code spec
+     */
+    public static CodeSpec of(BaseBlockCode base, int n, int k) {
+        BaseBlockCode proto = base.newInstance(n, k, new long[n], 0, 1);
+        return new CodeSpec(proto, proto);
+    }
+
+    public int getBlockLength() {
+        return N;
+    }
+
+    public int getMessageLength() {
+        return K;
+    }
+
+    @Override
+    public String toString() {
+        return "Code spec [" + name + ']';
+    }
+
+    /**
+     * Creates a code word handle over external storage
+     * @param x external array
+     * @param offset first element
+     * @param step next element
+     * @return code word, not thread-safe
+     */
+    public BlockCode wrap(long[] x, int offset, int step) {
+        if (offset < 0 || step < 1 || offset + (long)(N - 1) * step >= x.length) {
+            throw new IllegalArgumentException("Array of length " + x.length + " does not fit " + N
+                    + " symbols at offset " + offset + " with step " + step);
+        }
+        return prototype.newWord(x, offset, step);
+    }
+
+    /**
+     * Creates a code word handle over a new zero array
+     * @return code word, not thread-safe
+     */
+    public BlockCode newWord() {
+        return prototype.newWord(new long[N], 0, 1);
+    }
+
+    /**
+     * Creates a workspace for decoding code words of this code by one thread at a time
+     * @return decode workspace
+     */
+    public DecodeWorkspace newWorkspace() {
+        return new DecodeWorkspace(N, K);
+    }
+}
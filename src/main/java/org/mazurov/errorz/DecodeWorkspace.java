@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Scratch buffers for decoding code words of a given (n, k).
+ * Decoding through a workspace allocates nothing once the workspace has been used;
+ * a workspace is not thread-safe and is meant to be reused by one thread at a time.
+ *
+ */
+
+public class DecodeWorkspace {
+
+    final int N;
+    final int K;
+
+    final long[] s;         // syndromes, n - k
+    final long[] p;         // locator polynomial, n - k + 1
+    final long[] q;         // deflated locator polynomial, n - k + 1
+    final long[] c;         // Berlekamp-Massey recurrences, n - k + 1
+    final long[] b;
+    final long[] t;
+    final long[] terms;     // Chien search terms, n - k + 1
+    final long[][] consts;  // Chien search multiplication tables, n - k + 1
+    final long[] zc;        // Chien search constants, n - k + 1
+    final int[] idx;        // error or erasure positions, n - k
+    final long[] num;       // numerators of error values, n - k
+    final long[] den;       // denominators of error values, n - k
+    final long[] rden;      // reciprocals of denominators, n - k
+    final long[] nanos = new long[DecoderStats.STAGES]; // stage timings of the current attempt
+    long start;             // start time of the current attempt
+    long tick;              // end time of the previous stage
+    BlockCode owner;        // code word reported by instrumentation instead of the decoded delegate
+
+    private long[][] rows;  // syndrome matrix rows in original order
+    private long[][] a;     // syndrome matrix rows as permuted by elimination
+    private int rowsD;      // number of rows sharing the same length
+    private int rowsLen;    // length of the first rows
+    private long[][] f;     // syndrome powers
+    private long[] x;       // local copy of a code word, n
+    private long[] y;       // converted code word for Cauchy and Lagrange, n
+    private BaseBlockCode view; // code word over y
+
+    /**
+     * Creates a workspace
+     * @param n block length
+     * @param k message length
+     */
+    public DecodeWorkspace(int n, int k) {
+        N = n;
+        K = k;
+        int m = n - k;
+        s = new long[m];
+        p = new long[m + 1];
+        q = new long[m + 1];
+        c = new long[m + 1];
+        b = new long[m + 1];
+        t = new long[m + 1];
+        terms = new long[m + 1];
+        consts = new long[m + 1][];
+        zc = new long[m + 1];
+        idx = new int[m];
+        num = new long[m];
+        den = new long[m];
+        rden = new long[m];
+    }
+
+    @Override
+    public String toString() {
+        return "Decode workspace (n,k)=(" + N + "," + K + ")";
+    }
+
+    /**
+     * Verifies that the workspace fits the code word
+     * @param code code word
+     */
+    void check(BlockCode code) {
+        if (code.getBlockLength() != N || code.getMessageLength() != K) {
+            throw new IllegalArgumentException(this + " does not fit " + code);
+        }
+    }
+
+    /**
+     * Syndrome matrix with {@code d} consecutive rows of length {@code len}, then {@code d} rows
+     * of length {@code len-1}, and so on; allocated on first use
+     * @param nrows number of rows
+     * @param d number of rows of the same length
+     * @param len length of the first rows, at most n - k
+     * @return matrix rows in original order, to be filled by the caller
+     */
+    long[][] matrix(int nrows, int d, int len) {
+        if (rows == null || rows.length != nrows || rowsD != d || rowsLen != len) {
+            rows = new long[nrows][];
+            for (int i = 0; i < nrows; ++i) {
+                rows[i] = new long[len - i / d];
+            }
+            a = new long[nrows][];
+            rowsD = d;
+            rowsLen = len;
+        }
+        System.arraycopy(rows, 0, a, 0, nrows);
+        return a;
+    }
+
+    /**
+     * Table of syndrome powers, allocated on first use
+     * @param d number of powers
+     * @return d arrays of n - k elements
+     */
+    long[][] powers(int d) {
+        if (f == null || f.length != d) {
+            f = new long[d][N - K];
+        }
+        return f;
+    }
+
+    /**
+     * Local copy of a code word, allocated on first use
+     * @return array of n elements
+     */
+    long[] word() {
+        if (x == null) {
+            x = new long[N];
+        }
+        return x;
+    }
+
+    /**
+     * Converted code word for Cauchy and Lagrange, allocated on first use
+     * @return array of n elements
+     */
+    long[] converted() {
+        if (y == null) {
+            y = new long[N];
+        }
+        return y;
+    }
+
+    /**
+     * Code word of the same code as {@code code} over array {@link #converted()}
+     * @param code code word
+     * @return code word view, created on first use
+     */
+    BaseBlockCode view(BaseBlockCode code) {
+        if (view == null || !view.isSameCode(code)) {
+            view = code.newInstance(N, K, converted(), 0, 1);
+        }
+        return view;
+    }
+}
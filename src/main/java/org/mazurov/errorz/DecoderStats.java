@@ -0,0 +1,267 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Decoder instrumentation, enabled with -Derrorz.stats=true: outcome counters and stage timings
+ * exposed through a JMX MBean and, on Java 17+, JFR events org.mazurov.errorz.Decode.
+ * When disabled, every hook is a test of a constant and is compiled away.
+ *
+ */
+
+public final class DecoderStats implements DecoderStatsMXBean {
+
+    static final boolean ENABLED = Boolean.getBoolean("errorz.stats");
+
+    // Decoding stages timed in DecodeWorkspace.nanos
+    static final int SYNDROMES = 0;
+    static final int MATRIX = 1;
+    static final int SOLVE = 2;
+    static final int ROOTS = 3;
+    static final int STAGES = 4;
+
+    /**
+     * Outcomes of a decoding attempt
+     */
+    enum Outcome {
+        CLEAN(true),
+        CORRECTED(true),
+        SOLVER_FAILURE(false),
+        REPEATED_ROOT(false),
+        TOO_FEW_ROOTS(false);
+
+        final boolean success;
+
+        Outcome(boolean success) {
+            this.success = success;
+        }
+    }
+
+    private static final DecoderStats INSTANCE = new DecoderStats();
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+                        new ObjectName("org.mazurov.errorz:type=DecoderStats"));
+            }
+            catch (JMException ex) {
+                // Already registered by another class loader
+            }
+        }
+    }
+
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+    private final LongAdder symbols = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder[] stages = new LongAdder[STAGES];
+    private final LongAdder attempts2D = new LongAdder();
+    private final LongAdder passes2D = new LongAdder();
+
+    private DecoderStats() {
+        for (int i = 0; i < outcomes.length; ++i) {
+            outcomes[i] = new LongAdder();
+        }
+        for (int i = 0; i < STAGES; ++i) {
+            stages[i] = new LongAdder();
+        }
+    }
+
+    public static DecoderStats get() {
+        return INSTANCE;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public String toString() {
+        return "Decoder stats: attempts=" + getAttempts() + " clean=" + getCleanWords()
+                + " corrected=" + getCorrectedWords() + " symbols=" + getCorrectedSymbols()
+                + " solverFailures=" + getSolverFailures() + " repeatedRoots=" + getRepeatedRoots()
+                + " tooFewRoots=" + getTooFewRoots();
+    }
+
+    /**
+     * Starts timing of a decoding attempt
+     * @param ws workspace of the attempt
+     */
+    static void begin(DecodeWorkspace ws) {
+        if (!ENABLED) return;
+        long now = System.nanoTime();
+        ws.start = now;
+        ws.tick = now;
+        for (int i = 0; i < STAGES; ++i) {
+            ws.nanos[i] = 0;
+        }
+    }
+
+    /**
+     * Reports decoding attempts with a workspace as attempts of a code word that delegates
+     * decoding to another one, f.e. Cauchy or Lagrange
+     * @param ws workspace of the attempts
+     * @param code outer code word, null to report the decoded code words again
+     */
+    static void attribute(DecodeWorkspace ws, BlockCode code) {
+        if (!ENABLED) return;
+        ws.owner = code;
+    }
+
+    /**
+     * Attributes time since the previous stage to a stage
+     * @param ws workspace of the attempt
+     * @param stage stage index
+     */
+    static void stage(DecodeWorkspace ws, int stage) {
+        if (!ENABLED) return;
+        long now = System.nanoTime();
+        ws.nanos[stage] += now - ws.tick;
+        ws.tick = now;
+    }
+
+    /**
+     * Records the outcome of a decoding attempt
+     * @param code decoded code word, reported unless the workspace has an outer code word
+     * @param ws workspace of the attempt
+     * @param outcome outcome
+     * @param corrected number of corrected symbols
+     * @return true if decoding succeeded
+     */
+    static boolean end(BlockCode code, DecodeWorkspace ws, Outcome outcome, int corrected) {
+        if (!ENABLED) return outcome.success;
+        long total = System.nanoTime() - ws.start;
+        DecoderStats st = INSTANCE;
+        st.outcomes[outcome.ordinal()].increment();
+        st.symbols.add(corrected);
+        st.nanos.add(total);
+        for (int i = 0; i < STAGES; ++i) {
+            st.stages[i].add(ws.nanos[i]);
+        }
+        DecoderEvents.decoded(ws.owner != null ? ws.owner : code, outcome.name(), corrected, total, ws.nanos);
+        return outcome.success;
+    }
+
+    /**
+     * Records a 2-dimensional decoding attempt
+     * @param passes number of row and column passes until convergence
+     */
+    static void passes2D(int passes) {
+        if (!ENABLED) return;
+        INSTANCE.attempts2D.increment();
+        INSTANCE.passes2D.add(passes);
+    }
+
+    private long outcomes(Outcome o) {
+        return outcomes[o.ordinal()].sum();
+    }
+
+    @Override
+    public long getAttempts() {
+        long sum = 0;
+        for (LongAdder a : outcomes) {
+            sum += a.sum();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getCleanWords() {
+        return outcomes(Outcome.CLEAN);
+    }
+
+    @Override
+    public long getCorrectedWords() {
+        return outcomes(Outcome.CORRECTED);
+    }
+
+    @Override
+    public long getCorrectedSymbols() {
+        return symbols.sum();
+    }
+
+    @Override
+    public long getSolverFailures() {
+        return outcomes(Outcome.SOLVER_FAILURE);
+    }
+
+    @Override
+    public long getRepeatedRoots() {
+        return outcomes(Outcome.REPEATED_ROOT);
+    }
+
+    @Override
+    public long getTooFewRoots() {
+        return outcomes(Outcome.TOO_FEW_ROOTS);
+    }
+
+    @Override
+    public long getDecodeNanos() {
+        return nanos.sum();
+    }
+
+    @Override
+    public long getSyndromeNanos() {
+        return stages[SYNDROMES].sum();
+    }
+
+    @Override
+    public long getMatrixNanos() {
+        return stages[MATRIX].sum();
+    }
+
+    @Override
+    public long getSolveNanos() {
+        return stages[SOLVE].sum();
+    }
+
+    @Override
+    public long getRootSearchNanos() {
+        return stages[ROOTS].sum();
+    }
+
+    @Override
+    public long get2DAttempts() {
+        return attempts2D.sum();
+    }
+
+    @Override
+    public long get2DPasses() {
+        return passes2D.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder a : outcomes) {
+            a.reset();
+        }
+        for (LongAdder a : stages) {
+            a.reset();
+        }
+        symbols.reset();
+        nanos.reset();
+        attempts2D.reset();
+        passes2D.reset();
+    }
+}
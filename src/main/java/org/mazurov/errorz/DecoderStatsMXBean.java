@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Decoder counters and stage timings, registered as org.mazurov.errorz:type=DecoderStats
+ *
+ */
+
+public interface DecoderStatsMXBean {
+
+    long getAttempts();
+
+    long getCleanWords();
+
+    long getCorrectedWords();
+
+    long getCorrectedSymbols();
+
+    long getSolverFailures();
+
+    long getRepeatedRoots();
+
+    long getTooFewRoots();
+
+    long getDecodeNanos();
+
+    long getSyndromeNanos();
+
+    long getMatrixNanos();
+
+    long getSolveNanos();
+
+    long getRootSearchNanos();
+
+    long get2DAttempts();
+
+    long get2DPasses();
+
+    void reset();
+}
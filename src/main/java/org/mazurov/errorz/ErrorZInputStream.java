@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.mazurov.errorz.ErrorZOutputStream.getLong;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Input stream reading frames written by {@link ErrorZOutputStream} with the same block code
+ * and correcting errors in each frame before returning its payload.
+ *
+ */
+
+public class ErrorZInputStream extends FilterInputStream {
+
+    private final long[] words;
+    private final byte[] bytes;
+    private final BaseBlockCode code;
+    private final DecodeWorkspace ws;
+    private final int capacity;     // payload bytes per frame
+    private int pos;                // next payload byte
+    private int count;              // payload bytes in the current frame
+    private long corrected;         // number of frames with corrected errors
+    private boolean eof;
+
+    /**
+     * Creates a stream
+     * @param in underlying stream
+     * @param code block code the stream was written with
+     */
+    public ErrorZInputStream(InputStream in, BaseBlockCode code) {
+        super(in);
+        int n = code.getBlockLength();
+        int k = code.getMessageLength();
+        if (k < 2) {
+            throw new IllegalArgumentException("Message length must be at least 2: " + code);
+        }
+        words = new long[n];
+        bytes = new byte[8 * n];
+        this.code = code.newInstance(n, k, words, 0, 1);
+        ws = new DecodeWorkspace(n, k);
+        capacity = 8 * (k - 1);
+    }
+
+    /**
+     * Number of frames read so far that contained errors
+     * @return corrected frame count
+     */
+    public long getCorrectedFrames() {
+        return corrected;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos == count && !readFrame()) return -1;
+        return bytes[8 + pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if ((off | len | (b.length - off - len)) < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) return 0;
+        if (pos == count && !readFrame()) return -1;
+        int n = Math.min(len, count - pos);
+        System.arraycopy(bytes, 8 + pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n) {
+            if (pos == count && !readFrame()) break;
+            int m = (int)Math.min(n - skipped, count - pos);
+            pos += m;
+            skipped += m;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return count - pos;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {}
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("Mark/reset not supported");
+    }
+
+    /**
+     * Reads and corrects the next non-empty frame
+     * @return false at the end of the stream
+     */
+    private boolean readFrame() throws IOException {
+        do {
+            if (eof) return false;
+            int len = 0;
+            while (len < bytes.length) {
+                int r = in.read(bytes, len, bytes.length - len);
+                if (r < 0) break;
+                len += r;
+            }
+            if (len == 0) {
+                eof = true;
+                return false;
+            }
+            if (len < bytes.length) {
+                throw new IOException("Truncated frame: " + len + " of " + bytes.length + " bytes");
+            }
+
+            for (int i = 0; i < words.length; ++i) {
+                words[i] = getLong(bytes, 8 * i);
+            }
+            if (!code.decode(ws)) {
+                throw new IOException("Uncorrectable frame");
+            }
+            boolean fixed = false;
+            for (int i = 0; i < words.length; ++i) {
+                if (words[i] != getLong(bytes, 8 * i)) {
+                    ErrorZOutputStream.putLong(bytes, 8 * i, words[i]);
+                    fixed = true;
+                }
+            }
+            if (fixed) {
+                corrected += 1;
+            }
+            if (words[0] < 0 || words[0] > capacity) {
+                throw new IOException("Invalid frame length: " + words[0]);
+            }
+            count = (int)words[0];
+            pos = 0;
+        } while (count == 0);
+        return true;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Output stream framing bytes into code words of a block code (n, k).
+ * A frame is n little-endian symbols: symbol 0 holds the number of payload bytes,
+ * symbols 1 .. k-1 hold up to 8*(k-1) payload bytes and symbols k .. n-1 hold parity.
+ * Only the last frame written before {@link #flush()} or {@link #close()} may be partial.
+ * With a background encoder, a full frame is encoded while the next one is being filled.
+ *
+ */
+
+public class ErrorZOutputStream extends FilterOutputStream {
+
+    /**
+     * Frame buffers
+     */
+    private static class Frame {
+        final long[] words;
+        final byte[] bytes;
+        final BaseBlockCode code;
+        Future<?> pending;
+
+        Frame(BaseBlockCode base) {
+            int n = base.getBlockLength();
+            words = new long[n];
+            bytes = new byte[8 * n];
+            code = base.newInstance(n, base.getMessageLength(), words, 0, 1);
+        }
+
+        /**
+         * Encodes payload bytes with a header into frame bytes
+         */
+        void encode(int count) {
+            int k = code.getMessageLength();
+            Arrays.fill(bytes, 8 + count, 8 * k, (byte)0);
+            words[0] = count;
+            for (int i = 1; i < k; ++i) {
+                words[i] = getLong(bytes, 8 * i);
+            }
+            code.encode();
+            for (int i = k; i < words.length; ++i) {
+                putLong(bytes, 8 * i, words[i]);
+            }
+            putLong(bytes, 0, words[0]);
+        }
+    }
+
+    private final int capacity;     // payload bytes per frame
+    private final ExecutorService encoder;
+    private Frame frame;            // frame being filled
+    private Frame next;             // frame being encoded in the background or null
+    private int count;              // payload bytes in the current frame
+    private boolean closed;
+
+    /**
+     * Creates a stream encoding frames in the calling thread
+     * @param out underlying stream
+     * @param code block code, e.g. {@code new Mazurov(256, 240)}
+     */
+    public ErrorZOutputStream(OutputStream out, BaseBlockCode code) {
+        this(out, code, false);
+    }
+
+    /**
+     * Creates a stream
+     * @param out underlying stream
+     * @param code block code, e.g. {@code new Mazurov(256, 240)}
+     * @param background true to encode full frames in a background thread
+     */
+    public ErrorZOutputStream(OutputStream out, BaseBlockCode code, boolean background) {
+        super(out);
+        if (code.getMessageLength() < 2) {
+            throw new IllegalArgumentException("Message length must be at least 2: " + code);
+        }
+        capacity = 8 * (code.getMessageLength() - 1);
+        frame = new Frame(code);
+        if (background) {
+            next = new Frame(code);
+            encoder = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "ErrorZ encoder");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        else {
+            encoder = null;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        frame.bytes[8 + count++] = (byte)b;
+        if (count == capacity) {
+            writeFrame();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if ((off | len | (b.length - off - len)) < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            int n = Math.min(len, capacity - count);
+            System.arraycopy(b, off, frame.bytes, 8 + count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == capacity) {
+                writeFrame();
+            }
+        }
+    }
+
+    /**
+     * Writes buffered bytes as a partial frame and flushes the underlying stream
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (count > 0) {
+            writeFrame();
+        }
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        try {
+            flush();
+        }
+        finally {
+            closed = true;
+            if (encoder != null) {
+                encoder.shutdownNow();
+            }
+            out.close();
+        }
+    }
+
+    /**
+     * Encodes the current frame, in the background if possible, and switches to an empty one
+     */
+    private void writeFrame() throws IOException {
+        final Frame f = frame;
+        final int cnt = count;
+        count = 0;
+        if (encoder == null) {
+            f.encode(cnt);
+            out.write(f.bytes);
+            return;
+        }
+        drain();
+        f.pending = encoder.submit(() -> f.encode(cnt));
+        frame = next;
+        next = f;
+    }
+
+    /**
+     * Waits for the background frame, if any, and writes it
+     */
+    private void drain() throws IOException {
+        if (next == null || next.pending == null) return;
+        try {
+            next.pending.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding");
+        }
+        catch (ExecutionException e) {
+            throw new IOException("Encoding failed", e.getCause());
+        }
+        next.pending = null;
+        out.write(next.bytes);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) throw new IOException("Stream closed");
+    }
+
+    static long getLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 7; i >= 0; --i) {
+            v = (v << 8) | (b[off + i] & 0xFF);
+        }
+        return v;
+    }
+
+    static void putLong(byte[] b, int off, long v) {
+        for (int i = 0; i < 8; ++i) {
+            b[off + i] = (byte)v;
+            v >>>= 8;
+        }
+    }
+}
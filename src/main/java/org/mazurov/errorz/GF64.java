@@ -16,6 +16,8 @@
 
 package org.mazurov.errorz;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
  * Project ErrorZ
  *
@@ -32,6 +34,30 @@ public class GF64 {
     public static final long UNIT = 1;
     public static final long ALPHA = 2;
 
+    // Multiplication engine, selected at startup: -Dgf64.mul=serial|karatsuba
+    private static final boolean SERIAL_MUL = "serial".equals(System.getProperty("gf64.mul", "karatsuba"));
+
+    // Bulk array kernels, vectorized where supported: -Dgf64.vector=true
+    private static final Kernels KERNELS = KernelFactory.create();
+
+    // Frobenius map tables, one per power of 2 in the exponent
+    private static final AtomicReferenceArray<long[]> FROB = new AtomicReferenceArray<>(64);
+
+    // Masks selecting every 4th bit, used for carry-less products via integer multiplication
+    static final long M0 = 0x1111111111111111L;
+    static final long M1 = M0 << 1;
+    static final long M2 = M0 << 2;
+    static final long M3 = M0 << 3;
+    static final long LO32 = 0xFFFFFFFFL;
+
+    // Reduction table: RED[t] = reduced overflow of (t << 60) * ROOT
+    private static final long[] RED = new long[16];
+    static {
+        for (int t = 0; t < RED.length; ++t) {
+            RED[t] = clmul32((clmul32(t, ROOT) >>> 4), ROOT);
+        }
+    }
+
     /**
      * Galois field multiplication
      * @param a field element
@@ -39,6 +65,16 @@ public class GF64 {
      * @return {@code a * b}
      */
     public static long GFmul(long a, long b) {
+        return SERIAL_MUL ? GFmulSerial(a, b) : GFmulKaratsuba(a, b);
+    }
+
+    /**
+     * Galois field multiplication, bit-serial reference implementation
+     * @param a field element
+     * @param b field element
+     * @return {@code a * b}
+     */
+    public static long GFmulSerial(long a, long b) {
         long res = 0;
         while (b != 0) {
             res ^= a * (b & 1);
@@ -48,6 +84,218 @@ public class GF64 {
         return res;
     }
 
+    /**
+     * Galois field multiplication
+     * Karatsuba split on 32-bit halves followed by table-assisted reduction
+     * @param a field element
+     * @param b field element
+     * @return {@code a * b}
+     */
+    public static long GFmulKaratsuba(long a, long b) {
+        long a0 = a & LO32, a1 = a >>> 32;
+        long b0 = b & LO32, b1 = b >>> 32;
+        long l = clmul32(a0, b0);
+        long h = clmul32(a1, b1);
+        long m = clmul32(a0 ^ a1, b0 ^ b1) ^ l ^ h;
+        return reduce(l ^ (m << 32), h ^ (m >>> 32));
+    }
+
+    /**
+     * Reduces a 128-bit carry-less product modulo the field polynomial
+     * @param lo low 64 bits of the product
+     * @param hi high 64 bits of the product
+     * @return {@code hi * x^64 + lo} as a field element
+     */
+    static long reduce(long lo, long hi) {
+        // x^64 = ROOT = x^4 + x^3 + x + 1
+        return lo ^ hi ^ (hi << 1) ^ (hi << 3) ^ (hi << 4) ^ RED[(int)(hi >>> 60)];
+    }
+
+    /**
+     * Carry-less product of two 32-bit polynomials
+     * Bits are split into 4 interleaved groups so that carries of integer
+     * multiplication (at most 8 terms per position) never reach the next bit of the group
+     * @param x polynomial of degree < 32
+     * @param y polynomial of degree < 32
+     * @return {@code x * y} as a polynomial of degree < 63
+     */
+    static long clmul32(long x, long y) {
+        long x0 = x & M0, x1 = x & M1, x2 = x & M2, x3 = x & M3;
+        long y0 = y & M0, y1 = y & M1, y2 = y & M2, y3 = y & M3;
+        long z0 = (x0 * y0) ^ (x1 * y3) ^ (x2 * y2) ^ (x3 * y1);
+        long z1 = (x0 * y1) ^ (x1 * y0) ^ (x2 * y3) ^ (x3 * y2);
+        long z2 = (x0 * y2) ^ (x1 * y1) ^ (x2 * y0) ^ (x3 * y3);
+        long z3 = (x0 * y3) ^ (x1 * y2) ^ (x2 * y1) ^ (x3 * y0);
+        return (z0 & M0) | (z1 & M1) | (z2 & M2) | (z3 & M3);
+    }
+
+    /**
+     * Builds a byte-sliced table for multiplication by a constant
+     * @param c field element
+     * @return table of 8 slices by 256 entries, {@code t[256*s + j] = c * (j << 8*s)}
+     */
+    public static long[] GFtable(long c) {
+        long[] basis = new long[64];
+        long p = c;
+        for (int k = 0; k < basis.length; ++k) {
+            basis[k] = p;
+            p = (p << 1) ^ (p >>> MSBIT) * ROOT;
+        }
+        return linearTable(basis);
+    }
+
+    /**
+     * Galois field multiplication by a constant
+     * @param t table built by {@link #GFtable(long)} for constant {@code c}
+     * @param a field element
+     * @return {@code a * c}
+     */
+    public static long GFmul(long[] t, long a) {
+        return lookup(t, a);
+    }
+
+    /**
+     * Frobenius map, a GF(2)-linear automorphism of the field
+     * @param x field element
+     * @param d power of 2 in the exponent, {@code 0 <= d < 64}
+     * @return {@code x ^ (2^d)}
+     */
+    public static long frobenius(long x, int d) {
+        return lookup(frobeniusTable(d), x);
+    }
+
+    /**
+     * Byte-sliced table of the Frobenius map, built on first use
+     * @param d power of 2 in the exponent, {@code 0 <= d < 64}
+     * @return table to be used with {@link #lookup(long[], long)}
+     */
+    static long[] frobeniusTable(int d) {
+        long[] t = FROB.get(d);
+        if (t == null) {
+            long[] basis = new long[64];
+            for (int k = 0; k < basis.length; ++k) {
+                long b = 1L << k;
+                for (int r = 0; r < d; ++r) {
+                    b = GFmul(b, b);
+                }
+                basis[k] = b;
+            }
+            t = linearTable(basis);
+            FROB.set(d, t);
+        }
+        return t;
+    }
+
+    /**
+     * Builds a byte-sliced table of a GF(2)-linear map
+     * @param basis images of {@code x^k}, {@code 0 <= k < 64}
+     * @return table of 8 slices by 256 entries
+     */
+    private static long[] linearTable(long[] basis) {
+        long[] t = new long[8 * 256];
+        for (int s = 0; s < 8; ++s) {
+            int base = s << 8;
+            for (int b = 0; b < 8; ++b) {
+                int bit = 1 << b;
+                long p = basis[8 * s + b];
+                for (int j = 0; j < bit; ++j) {
+                    t[base + bit + j] = t[base + j] ^ p;
+                }
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Applies a GF(2)-linear map given by a byte-sliced table
+     * @param t table of 8 slices by 256 entries
+     * @param a field element
+     * @return image of {@code a}
+     */
+    static long lookup(long[] t, long a) {
+        return t[(int)a & 0xFF]
+                ^ t[0x100 | ((int)(a >>> 8) & 0xFF)]
+                ^ t[0x200 | ((int)(a >>> 16) & 0xFF)]
+                ^ t[0x300 | ((int)(a >>> 24) & 0xFF)]
+                ^ t[0x400 | ((int)(a >>> 32) & 0xFF)]
+                ^ t[0x500 | ((int)(a >>> 40) & 0xFF)]
+                ^ t[0x600 | ((int)(a >>> 48) & 0xFF)]
+                ^ t[0x700 | (int)(a >>> 56)];
+    }
+
+    /**
+     * Multiply-accumulate over arrays
+     * @param dst destination array, {@code dst[i] += src[i] * c}
+     * @param src source array
+     * @param c field element
+     */
+    public static void mulAdd(long[] dst, long[] src, long c) {
+        KERNELS.mulAdd(dst, 0, 1, src, 0, 1, dst.length, c);
+    }
+
+    /**
+     * Multiply-accumulate over sparse arrays
+     * {@code dst[dOff + i*dStep] += src[sOff + i*sStep] * c} for {@code 0 <= i < n}
+     * @param dst destination array
+     * @param dOff first destination element
+     * @param dStep next destination element
+     * @param src source array
+     * @param sOff first source element
+     * @param sStep next source element
+     * @param n number of elements
+     * @param c field element
+     */
+    public static void mulAdd(long[] dst, int dOff, int dStep, long[] src, int sOff, int sStep, int n, long c) {
+        KERNELS.mulAdd(dst, dOff, dStep, src, sOff, sStep, n, c);
+    }
+
+    /**
+     * Dot product of two arrays
+     * @param a field elements
+     * @param b field elements
+     * @return sum of {@code a[i] * b[i]}
+     */
+    public static long dot(long[] a, long[] b) {
+        return KERNELS.dot(a, 0, 1, b, 0, 1, a.length);
+    }
+
+    /**
+     * Dot product of two sparse arrays
+     * @param a first array
+     * @param aOff first element of {@code a}
+     * @param aStep next element of {@code a}
+     * @param b second array
+     * @param bOff first element of {@code b}
+     * @param bStep next element of {@code b}
+     * @param n number of elements
+     * @return sum of {@code a[aOff + i*aStep] * b[bOff + i*bStep]} for {@code 0 <= i < n}
+     */
+    public static long dot(long[] a, int aOff, int aStep, long[] b, int bOff, int bStep, int n) {
+        return KERNELS.dot(a, aOff, aStep, b, bOff, bStep, n);
+    }
+
+    /**
+     * Multiplies an array by a constant in place
+     * @param x field elements
+     * @param c field element
+     */
+    public static void scale(long[] x, long c) {
+        KERNELS.scale(x, 0, 1, x.length, c);
+    }
+
+    /**
+     * Multiplies a sparse array by a constant in place
+     * {@code x[off + i*step] *= c} for {@code 0 <= i < n}
+     * @param x array
+     * @param off first element
+     * @param step next element
+     * @param n number of elements
+     * @param c field element
+     */
+    public static void scale(long[] x, int off, int step, int n, long c) {
+        KERNELS.scale(x, off, step, n, c);
+    }
+
     /**
      * Galois field power function
      * @param a field element
@@ -120,6 +368,27 @@ public class GF64 {
         return GFdiv(UNIT, a);
     }
 
+    /**
+     * Galois field reciprocals of many elements at the cost of a single division
+     * Montgomery's trick: prefix products are inverted once and unwound with 3(n-1) multiplications
+     * @param a field elements, none of them zero
+     * @param res array receiving {@code 1 / a[i]}, distinct from {@code a}
+     * @param n number of elements
+     */
+    public static void GFrev(long[] a, long[] res, int n) {
+        if (n == 0) return;
+        res[0] = a[0];
+        for (int i = 1; i < n; ++i) {
+            res[i] = GFmul(res[i - 1], a[i]);
+        }
+        long inv = GFrev(res[n - 1]);
+        for (int i = n - 1; i > 0; --i) {
+            res[i] = GFmul(inv, res[i - 1]);
+            inv = GFmul(inv, a[i]);
+        }
+        res[0] = inv;
+    }
+
     /**
      * Galois field addition
      * @param a field element
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import static org.mazurov.errorz.GF64.*;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Scalar implementation of bulk array kernels
+ *
+ */
+
+class Kernels {
+
+    // Minimum number of elements for which building a multiplication table pays off
+    static final int TABLE_MIN = 512;
+
+    void mulAdd(long[] dst, int dOff, int dStep, long[] src, int sOff, int sStep, int n, long c) {
+        if (c == ZERO) return;
+        if (c == UNIT) {
+            for (int i = 0; i < n; ++i) {
+                dst[dOff + i * dStep] ^= src[sOff + i * sStep];
+            }
+        }
+        else if (n >= TABLE_MIN) {
+            long[] t = GFtable(c);
+            for (int i = 0; i < n; ++i) {
+                dst[dOff + i * dStep] ^= GFmul(t, src[sOff + i * sStep]);
+            }
+        }
+        else {
+            for (int i = 0; i < n; ++i) {
+                dst[dOff + i * dStep] ^= GFmul(src[sOff + i * sStep], c);
+            }
+        }
+    }
+
+    void scale(long[] x, int off, int step, int n, long c) {
+        if (c == UNIT) return;
+        if (n >= TABLE_MIN) {
+            long[] t = GFtable(c);
+            for (int i = 0; i < n; ++i) {
+                x[off + i * step] = GFmul(t, x[off + i * step]);
+            }
+        }
+        else {
+            for (int i = 0; i < n; ++i) {
+                x[off + i * step] = GFmul(x[off + i * step], c);
+            }
+        }
+    }
+
+    /**
+     * Dot product accumulating unreduced 128-bit products, reduced once at the end
+     */
+    long dot(long[] a, int aOff, int aStep, long[] b, int bOff, int bStep, int n) {
+        long lo = 0;
+        long hi = 0;
+        for (int i = 0; i < n; ++i) {
+            long x = a[aOff + i * aStep];
+            long y = b[bOff + i * bStep];
+            long x0 = x & LO32, x1 = x >>> 32;
+            long y0 = y & LO32, y1 = y >>> 32;
+            long l = clmul32(x0, y0);
+            long h = clmul32(x1, y1);
+            long m = clmul32(x0 ^ x1, y0 ^ y1) ^ l ^ h;
+            lo ^= l ^ (m << 32);
+            hi ^= h ^ (m >>> 32);
+        }
+        return reduce(lo, hi);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.mazurov.errorz.GF64.*;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Locators {@code Z[0] = 0, Z[i] = beta^(i-1)} generated on demand in chunks,
+ * with multiplication tables for the first locators.
+ * Chunks and tables are built on first use and shared by all code words.
+ *
+ */
+
+class Locators {
+
+    // Locators per chunk
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+
+    // Locators with multiplication tables (16KB each)
+    static final int TABLES = 256;
+
+    private final long beta;
+    private final int size;
+    private final AtomicReferenceArray<long[]> chunks;
+    private final AtomicReferenceArray<long[]> tables;
+
+    /**
+     * Creates a lazily generated set of locators
+     * @param beta generator of non-zero locators
+     * @param size number of locators, including zero
+     */
+    Locators(long beta, int size) {
+        this.beta = beta;
+        this.size = size;
+        chunks = new AtomicReferenceArray<>((int)(((long)size + CHUNK - 1) >>> CHUNK_BITS));
+        tables = new AtomicReferenceArray<>(Math.min(size, TABLES));
+    }
+
+    /**
+     * @return number of locators
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Locator at index {@code i}
+     * @param i locator index, {@code 0 <= i < size()}
+     * @return {@code 0} for {@code i = 0}, {@code beta^(i-1)} otherwise
+     */
+    long get(int i) {
+        int c = i >>> CHUNK_BITS;
+        long[] z = chunks.get(c);
+        if (z == null) {
+            // Concurrent builders produce identical chunks, any one of them will do
+            int first = c << CHUNK_BITS;
+            z = new long[Math.min(CHUNK, size - first)];
+            long v = first == 0 ? UNIT : GFpow(beta, first - 1);
+            for (int j = first == 0 ? 1 : 0; j < z.length; ++j) {
+                z[j] = v;
+                v = GFmul(v, beta);
+            }
+            chunks.set(c, z);
+        }
+        return z[i & (CHUNK - 1)];
+    }
+
+    /**
+     * Multiplication table for locator at index {@code i}
+     * @param i locator index
+     * @return table to be used with {@link GF64#GFmul(long[], long)}
+     * or null if {@code i >= TABLES}
+     */
+    long[] table(int i) {
+        if (i >= TABLES) return null;
+        long[] t = tables.get(i);
+        if (t == null) {
+            t = GFtable(get(i));
+            tables.set(i, t);
+        }
+        return t;
+    }
+}
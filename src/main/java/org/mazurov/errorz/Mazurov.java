@@ -16,6 +16,11 @@
 
 package org.mazurov.errorz;
 
+import org.mazurov.errorz.DecoderStats.Outcome;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import static org.mazurov.errorz.GF64.*;
 
 /**
@@ -27,46 +32,74 @@ import static org.mazurov.errorz.GF64.*;
 
 public class Mazurov extends BaseBlockCode {
 
-    // Maximum block length = 2^(64/D)
-    private static final int MAXN = 256;
+    // Default subfield degree
+    private static final int DEFAULT_D = 8;
+
+    // Locators shared by all code words over the same subfield, indexed by D
+    private static final AtomicReferenceArray<Locators> LOCATORS = new AtomicReferenceArray<>(33);
+
+    // GF(2^D) - subfield of 2^64, 64 = D*R, D is one of 4, 8, 16, 32
+    private final int D;
 
-    // GF(2^D) - subfield of 2^64, 64 = D*k
-    private static final int  D = 8;
+    // Number of conjugates of a field element over the subfield
+    private final int R;
 
-    // BETAD = (2^64 - 1)/(2^D - 1) = 2^(64 - D) + 2^(64 - 2D) + ... + 2^D + 1
-    private static final long BETAD;
-    static {
-        long r = 0;
-        for (int d = 0; d < 64; d += D) {
-            r += 1L << d;
+    // Locators: 0 and powers of a generator of the subfield's multiplicative group,
+    // at most 2^D of them, which is the maximum block length
+    private final Locators Z;
+
+    /**
+     * Locators for a subfield, built on first use
+     * @param d subfield degree
+     * @return locators
+     */
+    private static Locators locators(int d) {
+        if (d != 4 && d != 8 && d != 16 && d != 32) {
+            throw new IllegalArgumentException("Subfield degree must be one of 4, 8, 16, 32: " + d);
+        }
+        Locators z = LOCATORS.get(d);
+        if (z == null) {
+            // BETAD = (2^64 - 1)/(2^D - 1) = 2^(64 - D) + 2^(64 - 2D) + ... + 2^D + 1
+            long betad = 0;
+            for (int i = 0; i < 64; i += d) {
+                betad += 1L << i;
+            }
+            z = new Locators(GFpow(ALPHA, betad), d < 31 ? 1 << d : Integer.MAX_VALUE);
+            if (!LOCATORS.compareAndSet(d, null, z)) {
+                z = LOCATORS.get(d);
+            }
         }
-        BETAD = r;
+        return z;
     }
 
-    // Locators
-    private static final long[] Z;
-    static {
-        Z = new long[Math.min(MAXN, 1<<D)];
-        long beta = GFpow(ALPHA, BETAD);
-        Z[0] = ZERO;
-        long z = UNIT;
-        for (int i = 1; i < Z.length; ++i) {
-            Z[i] = z;
-            z = GFmul(z, beta);
-        }
+    private Mazurov(Locators z, int d) {
+        Z = z;
+        D = d;
+        R = 64 / d;
     }
 
     /**
      * Create an empty code word
      */
-    public Mazurov() {}
+    public Mazurov() {
+        this(locators(DEFAULT_D), DEFAULT_D);
+    }
+
+    /**
+     * Create an empty code word over subfield GF(2^d), e.g. to be used as a base code
+     * @param d subfield degree: 4, 8, 16 or 32
+     * @return empty code word
+     */
+    public static Mazurov withSubfield(int d) {
+        return new Mazurov(locators(d), d);
+    }
 
     /**
      * Create a random code word of maximum length
      * @param k message length
      */
     public Mazurov(int k) {
-        this(Z.length, k);
+        this(1 << DEFAULT_D, k);
     }
 
     /**
@@ -75,7 +108,17 @@ public class Mazurov extends BaseBlockCode {
      * @param k message length
      */
     public Mazurov(int n, int k) {
-        this(n, k, null, 0, 1);
+        this(n, k, DEFAULT_D);
+    }
+
+    /**
+     * Create a random code word of length ${code n} over subfield GF(2^d)
+     * @param n block length, at most 2^d
+     * @param k message length
+     * @param d subfield degree: 4, 8, 16 or 32
+     */
+    public Mazurov(int n, int k, int d) {
+        this(n, k, null, 0, 1, d);
         encode();
     }
 
@@ -88,8 +131,24 @@ public class Mazurov extends BaseBlockCode {
      * @param step next element
      */
     public Mazurov(int n, int k, long[] x, int offset, int step) {
+        this(n, k, x, offset, step, DEFAULT_D);
+    }
+
+    /**
+     * Create a sparse code word over subfield GF(2^d) from an external array
+     * @param n code length, at most 2^d
+     * @param k message length
+     * @param x external array
+     * @param offset first element
+     * @param step next element
+     * @param d subfield degree: 4, 8, 16 or 32
+     */
+    public Mazurov(int n, int k, long[] x, int offset, int step, int d) {
         super(n, k, x, offset, step);
-        if (n > Z.length) throw new IllegalArgumentException("Parameter n=" + n + "exceeds " + Z.length);
+        Z = locators(d);
+        D = d;
+        R = 64 / d;
+        if (n > Z.size()) throw new IllegalArgumentException("Parameter n=" + n + " exceeds " + Z.size());
     }
 
     /**
@@ -98,12 +157,12 @@ public class Mazurov extends BaseBlockCode {
      */
     @Override
     public BaseBlockCode newInstance(int n, int k, long[] x, int offset, int step) {
-        return new Mazurov(n, k, x, offset, step);
+        return new Mazurov(n, k, x, offset, step, D);
     }
 
     @Override
     public BaseBlockCode clone() {
-        return new Mazurov(N, K, X.clone(), offset, step);
+        return new Mazurov(N, K, X.clone(), offset, step, D);
     }
 
     @Override
@@ -112,70 +171,137 @@ public class Mazurov extends BaseBlockCode {
         if (N > 0) {
             str += " (n,k)=(" + N + "," + K + ")";
         }
+        if (D != DEFAULT_D) {
+            str += " over GF(2^" + D + ")";
+        }
         return str;
     }
 
+    @Override
+    protected String getCodeId() {
+        return super.getCodeId() + "/GF(2^" + D + ")";
+    }
+
+    @Override
+    boolean isSameCode(BaseBlockCode other) {
+        return super.isSameCode(other) && D == ((Mazurov)other).D;
+    }
+
     public long getLocator(int i) {
-        return Z[i];
+        return Z.get(i);
+    }
+
+    /**
+     * Adds {@code v * Z[i]^j} to {@code S[j]} for {@code 0 <= j < m}
+     */
+    private void addPowers(long[] S, int m, long v, int i) {
+        long[] zt = Z.table(i);
+        if (zt != null) {
+            for (int j = 0; j < m; ++j) {
+                S[j] = GFadd(S[j], v);
+                v = GFmul(zt, v);
+            }
+        }
+        else {
+            long z = Z.get(i);
+            for (int j = 0; j < m; ++j) {
+                S[j] = GFadd(S[j], v);
+                v = GFmul(v, z);
+            }
+        }
     }
 
     /**
-     * Fixes erasures
+     * Fixes erasures, at most N - K of them
+     * Values are found from the first e syndromes and the erasure locator polynomial
+     * L(x) = prod (x - Z.get(idx[t])) by a Forney-style formula:
+     * X[idx[t]] = sum over j of Q[j]*S[j] / Q(Z.get(idx[t])), where Q(x) = L(x) / (x - Z.get(idx[t]))
      * @param idx - array of erased indices
      */
     @Override
     public void decode(int[] idx) {
-        // Make a local copy
-        long[] XX = new long[N];
-        for (int i = 0; i < N; ++i) {
-            XX[i] = X[IDX(i)];
+        decode(idx, new DecodeWorkspace(N, K));
+    }
+
+    @Override
+    public void decode(int[] idx, DecodeWorkspace ws) {
+        ws.check(this);
+        if (idx.length > N - K) throw new IllegalArgumentException("Too many erasures: " + idx.length);
+        decode(idx, idx.length, ws);
+    }
+
+    /**
+     * Fixes the first e erasures listed in idx[]
+     * @param idx - array of erased indices
+     * @param e - number of erasures
+     * @param ws - workspace
+     */
+    private void decode(int[] idx, int e, DecodeWorkspace ws) {
+        if (e == 0) return;
+
+        // Zero the indicated values (erasures)
+        for (int i = 0; i < e; ++i) {
+            X[IDX(idx[i])] = ZERO;
         }
-        // Erase indicated values
-        for (int i : idx) {
-            XX[i] = ZERO;
+
+        // First e syndromes
+        long[] S = ws.s;
+        Arrays.fill(S, 0, e, ZERO);
+        for (int i = 0; i < N; ++i) {
+            long v = X[IDX(i)];
+            if (v == ZERO) continue;
+            addPowers(S, e, v, i);
         }
 
-        // Reconstruct erased values
-        long[] E = new long[idx.length];
-        for (int i=0; i<idx.length; ++i) {
-            long d = UNIT;
-            for (int j = 0; j < idx.length; ++j) {
-                if (j == i) continue;
-                d = GFmul(d, GFsub(Z[idx[i]], Z[idx[j]])); // d *= Z[idx[i]] - Z[idx[j]]
+        // Erasure locator polynomial
+        long[] L = ws.p;
+        Arrays.fill(L, 0, e + 1, ZERO);
+        L[0] = UNIT;
+        for (int i = 0; i < e; ++i) {
+            long z = Z.get(idx[i]);
+            for (int j = i + 1; j > 0; --j) {
+                L[j] = GFadd(L[j - 1], GFmul(L[j], z));
             }
-            d = GFrev(d); // d = 1/d
-
-            long e = ZERO;
-            for (int k = 0; k < N; ++k) {
-                if (XX[k] == ZERO) continue;
-                long v = 1;
-                for (int j = 0; j < idx.length; ++j) {
-                    if (j == i) continue;
-                    v = GFmul(v, GFsub(Z[k], Z[idx[j]])); // v *= Z[k] - Z[idx[j]]
-                }
-                e = GFadd(e, GFmul(XX[k], GFmul(v, d))); // e += X[IDX(k)] * v * d
+            L[0] = GFmul(L[0], z);
+        }
+
+        // Numerators and denominators of erased values
+        long[] num = ws.num;
+        long[] den = ws.den;
+        for (int t = 0; t < e; ++t) {
+            long z = Z.get(idx[t]);
+            long q = L[e];
+            long p = GFmul(q, S[e - 1]);
+            long d = q;
+            for (int j = e - 1; j > 0; --j) {
+                q = GFadd(L[j], GFmul(q, z));   // Q[j-1], synthetic division
+                p = GFadd(p, GFmul(q, S[j - 1]));
+                d = GFadd(GFmul(d, z), q);      // Horner
             }
-            E[i] = e;
+            num[t] = p;
+            den[t] = d;
         }
 
         // Restore erasures
-        for (int i=0; i<idx.length; ++i) {
-            X[IDX(idx[i])] = E[i];
+        long[] rden = ws.rden;
+        GFrev(den, rden, e);
+        for (int t = 0; t < e; ++t) {
+            X[IDX(idx[t])] = GFmul(num[t], rden[t]);
         }
     }
 
     /**
      * Computes code word syndromes
-     * @return array of N - K syndromes
+     * @param XX - code word
+     * @param S - buffer receiving N - K syndromes
+     * @return S
      */
-    private long[] getSyndromes(long[] XX) {
-        long[] S = new long[N - K];
+    private long[] getSyndromes(long[] XX, long[] S) {
+        Arrays.fill(S, ZERO);
         for (int i = 0; i < N; ++i) {
             long v = XX[i];
-            for (int j = 0; j < S.length; ++j) {
-                S[j] = GFadd(S[j], v);
-                v = GFmul(v, Z[i]);
-            }
+            if (v == ZERO) continue;
+            addPowers(S, S.length, v, i);
         }
         return S;
     }
@@ -183,9 +309,10 @@ public class Mazurov extends BaseBlockCode {
     /**
      * Solves linear equations
      * @param A - syndrome matrix
-     * @return solution
+     * @param res - buffer receiving the monic solution, at least A.length + 1 long
+     * @return degree of the solution or -1 if there is none
      */
-    private static long[] doGauss(long[][] A) {
+    private static int doGauss(long[][] A, long[] res) {
         int e;
         for (e = 0; e < A.length && e < A[e].length; ++e) {
             int i = e;
@@ -204,99 +331,243 @@ public class Mazurov extends BaseBlockCode {
             }
             long d = GFrev(A[i][i]);
 
-            for (int j=i; j<A[i].length; ++j) {
-                A[i][j] = GFmul(A[i][j], d);
-            }
+            scale(A[i], i, 1, A[i].length - i, d);
 
             for (int k = i + 1; k < A.length && i < A[k].length; ++k) {
                 long v = A[k][i];
                 int maxj = Math.min(A[i].length, A[k].length);
-                for (int j = i; j < maxj; ++j) {
-                    A[k][j] = GFadd(A[k][j], GFmul(A[i][j], v));
-                }
+                mulAdd(A[k], i, 1, A[i], i, 1, maxj - i, v);
             }
         }
 
-        long[] res = new long[e+1];
         res[e] = UNIT;
         for (int i = e - 1; i >= 0; --i) {
-            if (A[i].length <= e) return null;
+            if (A[i].length <= e) return -1;
             long v = ZERO;
             for (int j = e; j > i; --j) {
                 v = GFadd(v, GFmul(A[i][j], res[j]));
             }
             res[i] = v;
         }
-        return res;
+        return e;
     }
 
     /**
-     * decode
+     * findRoots - Chien search for distinct roots of a polynomial among the first N locators
+     * Term P[j]*Z[i]^j advances to the next locator when multiplied by the constant
+     * Z[j+1] = beta^j; the scan stops as soon as deg(P) roots are found
+     * @param P - polynomial
+     * @param deg - degree of the polynomial
+     * @param idx - buffer receiving indices of found roots, at least deg long
+     * @param ws - workspace
+     * @return number of roots found
+     */
+    private int findRoots(long[] P, int deg, int[] idx, DecodeWorkspace ws) {
+        int cnt = 0;
+        if (deg > 0 && P[0] == ZERO) {
+            // Z[0] = 0
+            idx[cnt++] = 0;
+        }
+        long[] T = ws.terms;
+        System.arraycopy(P, 0, T, 0, deg + 1);
+        long[][] C = ws.consts;
+        long[] c = ws.zc;
+        for (int j = 1; j <= deg; ++j) {
+            C[j] = Z.table(j + 1);
+            c[j] = Z.get(j + 1);
+        }
+        for (int i = 1; i < N && cnt < deg; ++i) {
+            long v = ZERO;
+            for (int j = 0; j <= deg; ++j) {
+                v = GFadd(v, T[j]);
+            }
+            if (v == ZERO) {
+                idx[cnt++] = i;
+            }
+            for (int j = 1; j <= deg; ++j) {
+                T[j] = C[j] != null ? GFmul(C[j], T[j]) : GFmul(T[j], c[j]);
+            }
+        }
+        return cnt;
+    }
+
+    /**
+     * Finds the error locator polynomial from syndromes and their Frobenius powers
+     * @param S - syndromes
+     * @param m - number of syndromes
+     * @param ws - workspace receiving the monic error locator polynomial in ws.p
+     * @return degree of the error locator polynomial or -1
+     */
+    private int solve(long[] S, int m, DecodeWorkspace ws) {
+        // Syndromes raised to powers 2^(k*D), 0 <= k < R
+        long[][] F = ws.powers(R);
+        long[] frob = frobeniusTable(D);
+        System.arraycopy(S, 0, F[0], 0, m);
+        for (int k = 1; k < R; ++k) {
+            for (int j = 0; j < m; ++j) {
+                F[k][j] = lookup(frob, F[k-1][j]);
+            }
+        }
+
+        // Construct the syndrome matrix
+        long[][] A = ws.matrix((m - m/2)*R, R, m);
+        for (int i = 0; i < A.length; ++i) {
+            int ii = i / R;
+            int k = i % R;
+            System.arraycopy(F[k], ii, A[i], 0, A[i].length);
+        }
+        DecoderStats.stage(ws, DecoderStats.MATRIX);
+
+        return doGauss(A, ws.p);
+    }
+
+    @Override
+    public boolean decodeErrata(int[] idx) {
+        return decodeErrata(idx, new DecodeWorkspace(N, K));
+    }
+
+    /**
+     * Fixes erasures and errors
+     * Syndromes are combined with the erasure locator polynomial L(x) = prod (x - Z.get(idx[t]))
+     * into N - K - e syndromes of errors alone: T[j] = sum over k of L[k]*S[j+k];
+     * erasure locators lie in the subfield, so Frobenius powers of T are syndromes of errors too,
+     * and the errors found from them are then fixed together with erasures
+     * @param idx - array of erased indices
+     * @param ws - workspace
      * @return true if successful
      */
     @Override
-    public boolean decode() {
-        // Make a local copy
-        long[] XX = new long[N];
+    public boolean decodeErrata(int[] idx, DecodeWorkspace ws) {
+        ws.check(this);
+        int e = idx.length;
+        if (e > N - K) throw new IllegalArgumentException("Too many erasures: " + e);
+        if (e == 0) return decode(ws);
+        DecoderStats.begin(ws);
+
+        for (int i = 0; i < e; ++i) {
+            X[IDX(idx[i])] = ZERO;
+        }
+        long[] XX = ws.word();
         for (int i = 0; i < N; ++i) {
             XX[i] = X[IDX(i)];
         }
+        long[] S = getSyndromes(XX, ws.s);
+
+        // Erasure locator polynomial
+        long[] L = ws.q;
+        Arrays.fill(L, 0, e + 1, ZERO);
+        L[0] = UNIT;
+        for (int i = 0; i < e; ++i) {
+            long z = Z.get(idx[i]);
+            for (int j = i + 1; j > 0; --j) {
+                L[j] = GFadd(L[j - 1], GFmul(L[j], z));
+            }
+            L[0] = GFmul(L[0], z);
+        }
 
-        long[] S = getSyndromes(XX);
-
-        // Construct the syndrome matrix
-        int m = N - K;
-        long[][] A = new long[(m - m/2)*D][];
-        for (int i = 0; i < A.length; ++i) {
-            int ii = i / D;
-            int k = i % D;
-            A[i] = new long[m - ii];
-            for (int j = 0; j < A[i].length; ++j) {
-                A[i][j] = k == 0 ? S[ii+j] : GFpow(A[i-1][j], 1<<D);
+        // Syndromes of errors, in place
+        int m = N - K - e;
+        for (int j = 0; j < m; ++j) {
+            long v = ZERO;
+            for (int k = 0; k <= e; ++k) {
+                v = GFadd(v, GFmul(L[k], S[j + k]));
+            }
+            S[j] = v;
+        }
+        DecoderStats.stage(ws, DecoderStats.SYNDROMES);
+
+        int deg = solve(S, m, ws);
+        DecoderStats.stage(ws, DecoderStats.SOLVE);
+        if (deg < 0) return DecoderStats.end(this, ws, Outcome.SOLVER_FAILURE, 0);
+        int[] pos = ws.idx;
+        int nroots = findRoots(ws.p, deg, pos, ws);
+        DecoderStats.stage(ws, DecoderStats.ROOTS);
+        if (nroots != deg) return DecoderStats.end(this, ws, Outcome.TOO_FEW_ROOTS, 0);
+        for (int t = 0; t < deg; ++t) {
+            for (int i = 0; i < e; ++i) {
+                // Common root of error and erasure locators
+                if (pos[t] == idx[i]) return DecoderStats.end(this, ws, Outcome.REPEATED_ROOT, 0);
             }
         }
 
-        long[] P = doGauss(A);
-        if (P == null) return false;
+        // Errors followed by erasures
+        System.arraycopy(idx, 0, pos, deg, e);
+        decode(pos, deg + e, ws);
+        return DecoderStats.end(this, ws, Outcome.CORRECTED, deg + e);
+    }
 
-        // Find roots and decode errors in one scan
-        long[] P0 = new long[P.length - 1];
-        int[] idx = new int[m];
-        long[] val = new long[m];
-        int ii = 0;
+    /**
+     * decode
+     * @return true if successful
+     */
+    @Override
+    public boolean decode() {
+        return decode(new DecodeWorkspace(N, K));
+    }
+
+    @Override
+    public boolean decode(DecodeWorkspace ws) {
+        ws.check(this);
+        DecoderStats.begin(ws);
+
+        // Make a local copy
+        long[] XX = ws.word();
         for (int i = 0; i < N; ++i) {
-            long z = Z[i];
-            long r = P[P.length - 1]; // UNIT
-            for (int j = P0.length - 1; j >= 0; --j) {
+            XX[i] = X[IDX(i)];
+        }
+
+        long[] S = getSyndromes(XX, ws.s);
+        DecoderStats.stage(ws, DecoderStats.SYNDROMES);
+        if (isZero(S, N - K)) return DecoderStats.end(this, ws, Outcome.CLEAN, 0);
+
+        long[] P = ws.p;
+        int deg = solve(S, N - K, ws);
+        DecoderStats.stage(ws, DecoderStats.SOLVE);
+        if (deg < 0) return DecoderStats.end(this, ws, Outcome.SOLVER_FAILURE, 0);
+
+        // Find roots, then error values at each root
+        long[] P0 = ws.q;
+        int[] roots = ws.idx;
+        int nroots = findRoots(P, deg, roots, ws);
+        DecoderStats.stage(ws, DecoderStats.ROOTS);
+        long[] val = ws.num;
+        long[] den = ws.den;
+        long[] rden = ws.rden;
+        int ii = 0;
+        for (int t = 0; t < nroots; ++t) {
+            int i = roots[t];
+            long z = Z.get(i);
+            long r = P[deg]; // UNIT
+            for (int j = deg - 1; j >= 0; --j) {
                 P0[j] = r;
                 r = GFadd(GFmul(r, z), P[j]);
             }
-            if (r != ZERO) continue;
 
             long p = ZERO;
             long q = ZERO;
-            for (int j = P0.length - 1; j >= 0; --j ) {
+            for (int j = deg - 1; j >= 0; --j ) {
                 p = GFadd(p, GFmul(P0[j], S[j]));
                 q = GFadd(GFmul(q, z), P0[j]);
             }
             if (q == ZERO) {
-                // Repeated root
-                return false;
+                return DecoderStats.end(this, ws, Outcome.REPEATED_ROOT, 0);
             }
-            idx[ii] = IDX(i);
-            val[ii] = GFadd(XX[i], GFdiv(p, q));
+            val[ii] = p;
+            den[ii] = q;
             ii += 1;
         }
-        if (ii != P.length - 1) {
-            // Too few roots
-            return false;
+        if (ii != deg) {
+            return DecoderStats.end(this, ws, Outcome.TOO_FEW_ROOTS, 0);
         }
 
+        // Error values p/q with a single division
+        GFrev(den, rden, ii);
         for (int i = 0; i < ii; ++i) {
-            X[idx[i]] = val[i];
+            int x = IDX(roots[i]);
+            X[x] = GFadd(X[x], GFmul(val[i], rden[i]));
         }
 
-        return true;
+        return DecoderStats.end(this, ws, Outcome.CORRECTED, ii);
     }
 
 }
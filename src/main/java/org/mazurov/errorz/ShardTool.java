@@ -0,0 +1,328 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Command-line tool splitting a file into K data shards and N-K parity shards.
+ * Shard i of FILE is stored as FILE.i and the stripe parameters as FILE.shards.
+ * Data shards are copied by the file system; parity is computed over memory-mapped
+ * shards, segment by segment, so file data never passes through heap arrays.
+ * Every shard is written to FILE.i.tmp, forced to storage and renamed into place,
+ * and FILE.shards holds its CRC32: a shard left behind by an interrupted run
+ * fails the check and is rebuilt rather than used.
+ *
+ * Usage:
+ *     encode FILE N K [vandermonde|mazurov|mazurov4|mazurov16|mazurov32]
+ *     rebuild FILE
+ *     join FILE OUTPUT
+ *
+ */
+
+public class ShardTool {
+
+    // Approximate number of bytes of all shards mapped at once
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 4 && "encode".equals(args[0])) {
+            encode(Paths.get(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                    args.length > 4 ? args[4] : "vandermonde");
+        }
+        else if (args.length == 2 && "rebuild".equals(args[0])) {
+            int n = rebuild(Paths.get(args[1]));
+            System.out.println("Rebuilt shards: " + n);
+        }
+        else if (args.length == 3 && "join".equals(args[0])) {
+            join(Paths.get(args[1]), Paths.get(args[2]));
+        }
+        else {
+            System.err.println("Usage: ShardTool encode FILE N K [" + BaseBlockCode.CODE_NAMES + "]");
+            System.err.println("       ShardTool rebuild FILE");
+            System.err.println("       ShardTool join FILE OUTPUT");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Splits a file into shards FILE.0 .. FILE.(N-1)
+     * @param file input file
+     * @param n number of shards
+     * @param k number of data shards
+     * @param code base code name
+     * @throws IOException
+     */
+    public static void encode(Path file, int n, int k, String code) throws IOException {
+        StripeCodec codec = new StripeCodec(n, k, BaseBlockCode.forName(code));
+        long size = Files.size(file);
+        long shardBytes = Math.max(8, (size + 8L * k - 1) / (8L * k) * 8);
+
+        // Data shards, zero-padded to the shard length
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < k; ++i) {
+                try (FileChannel out = open(temp(file, i), true)) {
+                    long pos = i * shardBytes;
+                    long end = Math.min(size, pos + shardBytes);
+                    while (pos < end) {
+                        pos += in.transferTo(pos, end - pos, out);
+                    }
+                    extend(out, shardBytes);
+                    out.force(true);
+                }
+                move(temp(file, i), shard(file, i));
+            }
+        }
+
+        boolean[] present = new boolean[n];
+        for (int i = 0; i < k; ++i) {
+            present[i] = true;
+        }
+        process(file, codec, present, shardBytes, true);
+
+        Properties props = new Properties();
+        props.setProperty("code", code);
+        props.setProperty("n", Integer.toString(n));
+        props.setProperty("k", Integer.toString(k));
+        props.setProperty("size", Long.toString(size));
+        props.setProperty("shard", Long.toString(shardBytes));
+        for (int i = 0; i < n; ++i) {
+            long crc = checksum(i < k ? shard(file, i) : temp(file, i), shardBytes);
+            props.setProperty("crc." + i, Long.toString(crc));
+        }
+        Path tmp = metadata(file).resolveSibling(metadata(file).getFileName() + ".tmp");
+        try (FileChannel ch = open(tmp, true); OutputStream out = Channels.newOutputStream(ch)) {
+            props.store(out, "ErrorZ shards");
+            out.flush();
+            ch.force(true);
+        }
+        move(tmp, metadata(file));
+
+        for (int i = k; i < n; ++i) {
+            move(temp(file, i), shard(file, i));
+        }
+    }
+
+    /**
+     * Recreates missing shards from the remaining ones
+     * @param file input file the shards were created from
+     * @return number of rebuilt shards
+     * @throws IOException
+     */
+    public static int rebuild(Path file) throws IOException {
+        Properties props = readMetadata(file);
+        int n = Integer.parseInt(props.getProperty("n"));
+        int k = Integer.parseInt(props.getProperty("k"));
+        long shardBytes = Long.parseLong(props.getProperty("shard"));
+        StripeCodec codec = new StripeCodec(n, k, BaseBlockCode.forName(props.getProperty("code")));
+
+        // A shard is present only if it is complete and intact
+        boolean[] present = new boolean[n];
+        int missing = 0;
+        for (int i = 0; i < n; ++i) {
+            Path p = shard(file, i);
+            present[i] = Files.exists(p) && Files.size(p) == shardBytes
+                    && checksum(p, shardBytes) == checksum(props, i);
+            if (!present[i]) missing += 1;
+        }
+        if (missing > n - k) {
+            throw new IOException("Too many missing shards: " + missing + " > " + (n - k));
+        }
+        if (missing > 0) {
+            process(file, codec, present, shardBytes, false);
+            for (int i = 0; i < n; ++i) {
+                if (present[i]) continue;
+                if (checksum(temp(file, i), shardBytes) != checksum(props, i)) {
+                    Files.delete(temp(file, i));
+                    throw new IOException("Rebuilt shard " + i + " does not match its checksum");
+                }
+                move(temp(file, i), shard(file, i));
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Concatenates data shards into the original file
+     * @param file input file the shards were created from
+     * @param output output file
+     * @throws IOException if a data shard is missing or damaged
+     */
+    public static void join(Path file, Path output) throws IOException {
+        Properties props = readMetadata(file);
+        int k = Integer.parseInt(props.getProperty("k"));
+        long size = Long.parseLong(props.getProperty("size"));
+        long shardBytes = Long.parseLong(props.getProperty("shard"));
+        for (int i = 0; i < k; ++i) {
+            Path p = shard(file, i);
+            if (!Files.exists(p) || Files.size(p) != shardBytes || checksum(p, shardBytes) != checksum(props, i)) {
+                throw new IOException("Shard " + i + " is missing or damaged, rebuild first");
+            }
+        }
+        try (FileChannel out = open(output, true)) {
+            long pos = 0;
+            for (int i = 0; i < k && pos < size; ++i) {
+                try (FileChannel in = FileChannel.open(shard(file, i), StandardOpenOption.READ)) {
+                    long len = Math.min(shardBytes, size - pos);
+                    long done = 0;
+                    while (done < len) {
+                        done += in.transferTo(done, len - done, out);
+                    }
+                    pos += len;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes absent shards segment by segment over memory-mapped files
+     * into temporary files, forced to storage
+     * @param encode true if the absent shards are exactly the parity shards
+     */
+    private static void process(Path file, StripeCodec codec, boolean[] present, long shardBytes, boolean encode)
+            throws IOException {
+        int n = codec.getShardCount();
+        long segment = Math.max(8, SEGMENT_BYTES / n / 8 * 8);
+        segment = Math.min(segment, (long)Integer.MAX_VALUE / 8 * 8);
+        FileChannel[] channels = new FileChannel[n];
+        try {
+            for (int i = 0; i < n; ++i) {
+                if (present[i]) {
+                    channels[i] = open(shard(file, i), false);
+                }
+                else {
+                    channels[i] = open(temp(file, i), true);
+                    // The whole shard must exist to be mapped
+                    extend(channels[i], shardBytes);
+                }
+            }
+            LongBuffer[] shards = new LongBuffer[n];
+            MappedByteBuffer[] maps = new MappedByteBuffer[n];
+            for (long pos = 0; pos < shardBytes; pos += segment) {
+                long len = Math.min(segment, shardBytes - pos);
+                for (int i = 0; i < n; ++i) {
+                    maps[i] = channels[i].map(
+                            present[i] ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, pos, len);
+                    shards[i] = maps[i].order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+                }
+                if (encode) {
+                    codec.encode(shards);
+                }
+                else {
+                    codec.reconstruct(shards, present);
+                }
+                for (int i = 0; i < n; ++i) {
+                    if (!present[i]) maps[i].force();
+                }
+            }
+            for (int i = 0; i < n; ++i) {
+                if (!present[i]) channels[i].force(true);
+            }
+        }
+        finally {
+            for (FileChannel ch : channels) {
+                if (ch != null) ch.close();
+            }
+        }
+    }
+
+    /**
+     * CRC32 of a shard, over memory-mapped segments
+     */
+    private static long checksum(Path path, long shardBytes) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel ch = open(path, false)) {
+            long segment = Math.min(SEGMENT_BYTES, Integer.MAX_VALUE);
+            for (long pos = 0; pos < shardBytes; pos += segment) {
+                crc.update(ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(segment, shardBytes - pos)));
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Recorded CRC32 of shard i
+     */
+    private static long checksum(Properties props, int i) throws IOException {
+        String crc = props.getProperty("crc." + i);
+        if (crc == null) {
+            throw new IOException("No checksum of shard " + i);
+        }
+        return Long.parseLong(crc);
+    }
+
+    /**
+     * Renames a complete temporary file into place
+     */
+    private static void move(Path source, Path target) throws IOException {
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Zero-pads a file to the given size
+     */
+    private static void extend(FileChannel ch, long size) throws IOException {
+        if (ch.size() < size) {
+            ch.write(ByteBuffer.allocate(1), size - 1);
+        }
+    }
+
+    private static FileChannel open(Path path, boolean create) throws IOException {
+        return create
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)
+                : FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    private static Path shard(Path file, int i) {
+        return file.resolveSibling(file.getFileName() + "." + i);
+    }
+
+    private static Path temp(Path file, int i) {
+        return file.resolveSibling(file.getFileName() + "." + i + ".tmp");
+    }
+
+    private static Path metadata(Path file) {
+        return file.resolveSibling(file.getFileName() + ".shards");
+    }
+
+    private static Properties readMetadata(Path file) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(metadata(file))) {
+            props.load(in);
+        }
+        return props;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Aggregate outcome of decoding trials.
+ *
+ */
+
+public final class SimulationResult {
+
+    private final long trials;
+    private final long rejected;
+    private final long failed;
+    private final long nanos;
+
+    SimulationResult(long trials, long rejected, long failed, long nanos) {
+        this.trials = trials;
+        this.rejected = rejected;
+        this.failed = failed;
+        this.nanos = nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("runs: %d, decoded: %d, rejected: %d, failed: %d, time: %.3fs",
+                trials, getDecoded(), rejected, failed, nanos * 1e-9);
+    }
+
+    public long getTrials() {
+        return trials;
+    }
+
+    public long getDecoded() {
+        return trials - rejected - failed;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return number of trials decoded to a wrong code word
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getElapsedNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return observed rate of decoding to a wrong code word,
+     *         or the 95% upper bound (rule of three) if none was observed
+     */
+    public double getFailureRate() {
+        if (trials == 0) return Double.NaN;
+        return failed > 0 ? (double)failed / trials : 3.0 / trials;
+    }
+}
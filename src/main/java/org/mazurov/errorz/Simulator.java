@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Parallel Monte Carlo estimation of decoding reliability.
+ * Every trial draws its errors from its own SplittableRandom seeded from the master seed
+ * and the trial number, so results do not depend on the number of threads or on scheduling.
+ * Workers claim chunks of trials from an atomic counter and merge their counts lock-free.
+ *
+ */
+
+public class Simulator {
+
+    // Trials claimed by a worker at a time
+    private static final int CHUNK = 1 << 12;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final Executor executor;
+    private final int parallelism;
+
+    /**
+     * Creates a simulator running on the common fork/join pool
+     */
+    public Simulator() {
+        this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Creates a simulator
+     * @param executor executor running workers
+     * @param parallelism number of workers
+     */
+    public Simulator(Executor executor, int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Decodes copies of a code word with random errors
+     * @param code encoded code word, not modified
+     * @param errors number of errors per trial
+     * @param trials number of trials
+     * @param seed master seed
+     * @return aggregate result
+     */
+    public SimulationResult run(BlockCode code, int errors, long trials, long seed) {
+        if (errors < 0 || errors > code.getBlockLength()) {
+            throw new IllegalArgumentException("Invalid number of errors: " + errors);
+        }
+        long start = System.nanoTime();
+        AtomicLong next = new AtomicLong();
+        LongAdder rejected = new LongAdder();
+        LongAdder failed = new LongAdder();
+        long chunks = (trials + CHUNK - 1) / CHUNK;
+        int workers = (int)Math.max(1, Math.min(parallelism, chunks));
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[workers];
+        for (int w = 0; w < workers; ++w) {
+            tasks[w] = CompletableFuture.runAsync(
+                    () -> work(code, errors, trials, seed, next, rejected, failed), executor);
+        }
+        try {
+            CompletableFuture.allOf(tasks).join();
+        }
+        catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+            if (cause instanceof Error) throw (Error)cause;
+            throw e;
+        }
+        return new SimulationResult(trials, rejected.sum(), failed.sum(), System.nanoTime() - start);
+    }
+
+    /**
+     * Runs chunks of trials until all are claimed
+     */
+    private static void work(BlockCode code, int errors, long trials, long seed,
+                             AtomicLong next, LongAdder rejectedTotal, LongAdder failedTotal) {
+        int N = code.getBlockLength();
+        BlockCode word = code.clone();
+        DecodeWorkspace ws = new DecodeWorkspace(N, code.getMessageLength());
+        long[] ref = new long[N];
+        for (int i = 0; i < N; ++i) {
+            ref[i] = code.getAt(i);
+        }
+        boolean[] marks = new boolean[N];
+        for (;;) {
+            long first = next.getAndIncrement() * CHUNK;
+            if (first >= trials) break;
+            long last = Math.min(trials, first + CHUNK);
+            long rejected = 0;
+            long failed = 0;
+            for (long t = first; t < last; ++t) {
+                SplittableRandom rnd = new SplittableRandom(mix64(seed + t * GOLDEN_GAMMA));
+                for (int e = 0; e < errors;) {
+                    int i = rnd.nextInt(N);
+                    if (marks[i]) continue;
+                    long val = rnd.nextLong();
+                    if (val == ref[i]) continue;
+                    word.setAt(i, val);
+                    marks[i] = true;
+                    e += 1;
+                }
+                boolean decoded = word.decode(ws);
+                // Compare with the original and restore it for the next trial
+                boolean wrong = false;
+                for (int i = 0; i < N; ++i) {
+                    marks[i] = false;
+                    if (word.getAt(i) != ref[i]) {
+                        wrong = true;
+                        word.setAt(i, ref[i]);
+                    }
+                }
+                if (!decoded) {
+                    rejected += 1;
+                }
+                else if (wrong) {
+                    failed += 1;
+                }
+            }
+            rejectedTotal.add(rejected);
+            failedTotal.add(failed);
+        }
+    }
+
+    /**
+     * Stafford's variant 13 finalizer: decorrelates seeds of consecutive trials
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void usage() {
+        System.err.println("Usage: Simulator " + BaseBlockCode.CODE_NAMES + " N K ERRORS TRIALS [SEED]");
+        System.exit(1);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 5 || args.length > 6) usage();
+        int n = Integer.parseInt(args[1]);
+        int k = Integer.parseInt(args[2]);
+        int errors = Integer.parseInt(args[3]);
+        long trials = Long.parseLong(args[4]);
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime();
+        BaseBlockCode base;
+        try {
+            base = BaseBlockCode.forName(args[0]).newInstance(n, k, new long[n], 0, 1);
+        }
+        catch (IllegalArgumentException e) {
+            usage();
+            return;
+        }
+        SplittableRandom rnd = new SplittableRandom(seed);
+        for (int i = 0; i < k; ++i) {
+            base.setAt(i, rnd.nextLong());
+        }
+        base.encode();
+        System.out.println(base + ", errors: " + errors + ", seed: " + seed);
+        SimulationResult res = new Simulator().run(base, errors, trials, seed);
+        System.out.println(res);
+        System.out.printf("failure rate: %s%.3g%n", res.getFailed() > 0 ? "" : "< ", res.getFailureRate());
+    }
+}
@@ -0,0 +1,518 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.mazurov.errorz.GF64.*;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Codec for a stripe of N equally long shards: symbols at position j of all shards
+ * form one code word, shards 0 .. K-1 hold data and shards K .. N-1 hold parity.
+ * Positions are processed in chunks small enough for the touched parts of all shards
+ * to stay in cache, and reconstruction coefficients are computed once per erasure pattern.
+ * Codes too long for a generator matrix are encoded and reconstructed by erasure decoding
+ * at every position instead.
+ * Shards are either heap arrays or {@link LongBuffer}s, e.g. views of memory-mapped files,
+ * which are processed in place between their position and limit.
+ *
+ */
+
+public class StripeCodec {
+
+    // Maximum number of coefficients with precomputed multiplication tables (16KB each)
+    private static final int MAX_TABLES = 1024;
+
+    // Approximate number of bytes of all shards processed at once
+    private static final int CHUNK_BYTES = 1 << 18;
+
+    // Maximum number of cached erasure patterns
+    private static final int MAX_PATTERNS = 256;
+
+    private final BaseBlockCode base;
+    private final int N;
+    private final int K;
+    private final int chunk;
+    private final long[][] G;       // parity generator matrix or null for long codes
+    private final long[][][] GT;    // multiplication tables for G or null
+
+    // Reconstruction coefficients by flags of present shards
+    private final ConcurrentHashMap<BitSet, Reconstruction> patterns = new ConcurrentHashMap<>();
+
+    /**
+     * Coefficients of missing shards in terms of the chosen source shards
+     */
+    private static final class Reconstruction {
+        final int[] src;
+        final int[] dst;
+        final long[][] R;
+        volatile long[][][] T;  // multiplication tables for R, built for long shards only
+
+        Reconstruction(int[] src, int[] dst, long[][] R) {
+            this.src = src;
+            this.dst = dst;
+            this.R = R;
+        }
+
+        long[][][] tables(int len) {
+            if (len < Kernels.TABLE_MIN) return null;
+            long[][][] t = T;
+            if (t == null) {
+                T = t = StripeCodec.tables(R);
+            }
+            return t;
+        }
+    }
+
+    /**
+     * Creates a stripe codec
+     * @param n number of shards
+     * @param k number of data shards
+     * @param base base block code
+     */
+    public StripeCodec(int n, int k, BaseBlockCode base) {
+        this.base = base.newInstance(n, k, new long[n], 0, 1);
+        N = n;
+        K = k;
+        chunk = Math.max(64, CHUNK_BYTES / (8 * n));
+        G = this.base.hasGenerator() ? this.base.getGenerator() : null;
+        GT = G != null ? tables(G) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "Stripe codec [" + base + ']';
+    }
+
+    public int getShardCount() {
+        return N;
+    }
+
+    public int getDataShardCount() {
+        return K;
+    }
+
+    /**
+     * Computes parity shards from data shards
+     * @param shards N shards of the same length; parity shards may be null
+     */
+    public void encode(long[][] shards) {
+        int len = getLength(shards);
+        int[] src = new int[K];
+        for (int i = 0; i < K; ++i) {
+            src[i] = i;
+        }
+        int[] dst = new int[N - K];
+        for (int i = 0; i < dst.length; ++i) {
+            dst[i] = K + i;
+        }
+        if (G == null) {
+            forEachWord(shards, len, dst, (word, ws) -> decodeErasures(word, dst, ws));
+            return;
+        }
+        combine(G, GT, shards, src, dst, len);
+    }
+
+    /**
+     * Computes parity shards from data shards in place
+     * @param shards N buffers with the same number of remaining elements
+     */
+    public void encode(LongBuffer[] shards) {
+        int len = getLength(shards);
+        int[] src = new int[K];
+        for (int i = 0; i < K; ++i) {
+            src[i] = i;
+        }
+        int[] dst = new int[N - K];
+        for (int i = 0; i < dst.length; ++i) {
+            dst[i] = K + i;
+        }
+        if (G == null) {
+            forEachWord(shards, len, dst, (word, ws) -> decodeErasures(word, dst, ws));
+            return;
+        }
+        combine(G, GT, shards, src, dst, len);
+    }
+
+    /**
+     * Reconstructs missing shards from any K present ones
+     * @param shards N shards of the same length; missing shards may be null
+     * @param present flags of present shards
+     * @throws IllegalArgumentException if fewer than K shards are present
+     */
+    public void reconstruct(long[][] shards, boolean[] present) {
+        int len = getLength(shards);
+        if (G == null) {
+            int[] dst = missing(present);
+            if (dst.length == 0) return;
+            forEachWord(shards, len, dst, (word, ws) -> decodeErasures(word, dst, ws));
+            return;
+        }
+        Reconstruction rec = reconstruction(present);
+        if (rec.dst.length == 0) return;
+        combine(rec.R, rec.tables(len), shards, rec.src, rec.dst, len);
+    }
+
+    /**
+     * Reconstructs missing shards from any K present ones in place
+     * @param shards N buffers with the same number of remaining elements, missing ones included
+     * @param present flags of present shards
+     * @throws IllegalArgumentException if fewer than K shards are present
+     */
+    public void reconstruct(LongBuffer[] shards, boolean[] present) {
+        int len = getLength(shards);
+        if (G == null) {
+            int[] dst = missing(present);
+            if (dst.length == 0) return;
+            forEachWord(shards, len, dst, (word, ws) -> decodeErasures(word, dst, ws));
+            return;
+        }
+        Reconstruction rec = reconstruction(present);
+        if (rec.dst.length == 0) return;
+        combine(rec.R, rec.tables(len), shards, rec.src, rec.dst, len);
+    }
+
+    /**
+     * Reconstruction coefficients for an erasure pattern, computed once per pattern
+     * @param present flags of present shards
+     * @throws IllegalArgumentException if fewer than K shards are present
+     */
+    private Reconstruction reconstruction(boolean[] present) {
+        BitSet key = new BitSet(N);
+        for (int i = 0; i < N; ++i) {
+            if (present[i]) key.set(i);
+        }
+        Reconstruction rec = patterns.get(key);
+        if (rec == null) {
+            int[][] sel = select(present);
+            rec = new Reconstruction(sel[0], sel[2], coefficients(sel[0], sel[1], sel[2]));
+            if (patterns.size() >= MAX_PATTERNS) {
+                patterns.clear();
+            }
+            patterns.put(key, rec);
+        }
+        return rec;
+    }
+
+    /**
+     * Chooses source shards for reconstruction
+     * @param present flags of present shards
+     * @return the first K present shards, all other shards, and missing shards
+     */
+    private int[][] select(boolean[] present) {
+        int[] src = new int[K];
+        int[] erased = new int[N];
+        int[] missing = new int[N];
+        int ns = 0, ne = 0, nm = 0;
+        for (int i = 0; i < N; ++i) {
+            if (!present[i]) {
+                missing[nm++] = i;
+            }
+            if (present[i] && ns < K) {
+                src[ns++] = i;
+            }
+            else {
+                erased[ne++] = i;
+            }
+        }
+        if (ns < K) {
+            throw new IllegalArgumentException("Too many missing shards: " + nm + " > " + (N - K));
+        }
+        return new int[][] { src, Arrays.copyOf(erased, ne), Arrays.copyOf(missing, nm) };
+    }
+
+    /**
+     * Missing shards of a stripe of a long code, without coefficients
+     * @throws IllegalArgumentException if fewer than K shards are present
+     */
+    private int[] missing(boolean[] present) {
+        int[] missing = new int[N];
+        int nm = 0;
+        for (int i = 0; i < N; ++i) {
+            if (!present[i]) missing[nm++] = i;
+        }
+        if (nm > N - K) {
+            throw new IllegalArgumentException("Too many missing shards: " + nm + " > " + (N - K));
+        }
+        return Arrays.copyOf(missing, nm);
+    }
+
+    /**
+     * Coefficients of missing shards in terms of the chosen K shards,
+     * one erasure solve per source shard for the whole stripe
+     */
+    private long[][] coefficients(int[] src, int[] erased, int[] missing) {
+        long[][] R = new long[missing.length][K];
+        long[] x = new long[N];
+        BaseBlockCode word = base.newInstance(N, K, x, 0, 1);
+        DecodeWorkspace ws = new DecodeWorkspace(N, K);
+        for (int c = 0; c < K; ++c) {
+            Arrays.fill(x, ZERO);
+            x[src[c]] = UNIT;
+            word.decode(erased, ws);
+            for (int r = 0; r < missing.length; ++r) {
+                R[r][c] = x[missing[r]];
+            }
+        }
+        return R;
+    }
+
+    /**
+     * Corrects errors at every position of the stripe
+     * @param shards N shards of the same length
+     * @return true if every position is a valid code word after correction
+     * @throws IllegalArgumentException if a shard is missing
+     */
+    public boolean verifyAndRepair(long[][] shards) {
+        int len = getLength(shards);
+        checkPresent(shards);
+        return forEachWord(shards, len, null, (word, ws) -> word.decode(ws));
+    }
+
+    /**
+     * Corrects errors at every position of the stripe in place
+     * @param shards N writable buffers with the same number of remaining elements
+     * @return true if every position is a valid code word after correction
+     */
+    public boolean verifyAndRepair(LongBuffer[] shards) {
+        int len = getLength(shards);
+        return forEachWord(shards, len, null, (word, ws) -> word.decode(ws));
+    }
+
+    /**
+     * Operation on one code word of a stripe
+     */
+    private interface WordOp {
+        boolean apply(BaseBlockCode word, DecodeWorkspace ws);
+    }
+
+    private static boolean decodeErasures(BaseBlockCode word, int[] idx, DecodeWorkspace ws) {
+        word.decode(idx, ws);
+        return true;
+    }
+
+    /**
+     * Applies an operation at every position, a chunk of positions at a time
+     * transposed into contiguous code words; missing shards read as zero
+     * @param dst shards written back, all if null
+     * @return true if the operation succeeded at every position
+     */
+    private boolean forEachWord(long[][] shards, int len, int[] dst, WordOp op) {
+        if (dst != null) {
+            for (int i : dst) {
+                if (shards[i] == null) {
+                    shards[i] = new long[len];
+                }
+            }
+        }
+        long[] buf = new long[chunk * N];
+        BaseBlockCode[] words = newWords(buf);
+        DecodeWorkspace ws = new DecodeWorkspace(N, K);
+        boolean ok = true;
+        for (int p0 = 0; p0 < len; p0 += chunk) {
+            int cnt = Math.min(chunk, len - p0);
+            for (int i = 0; i < N; ++i) {
+                long[] s = shards[i];
+                for (int p = 0; p < cnt; ++p) {
+                    buf[p * N + i] = s != null ? s[p0 + p] : ZERO;
+                }
+            }
+            for (int p = 0; p < cnt; ++p) {
+                ok &= op.apply(words[p], ws);
+            }
+            for (int r = 0, nr = dst != null ? dst.length : N; r < nr; ++r) {
+                int i = dst != null ? dst[r] : r;
+                long[] s = shards[i];
+                for (int p = 0; p < cnt; ++p) {
+                    s[p0 + p] = buf[p * N + i];
+                }
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Same as above for buffers, indexed from their positions
+     */
+    private boolean forEachWord(LongBuffer[] shards, int len, int[] dst, WordOp op) {
+        long[] buf = new long[chunk * N];
+        BaseBlockCode[] words = newWords(buf);
+        DecodeWorkspace ws = new DecodeWorkspace(N, K);
+        boolean ok = true;
+        for (int p0 = 0; p0 < len; p0 += chunk) {
+            int cnt = Math.min(chunk, len - p0);
+            for (int i = 0; i < N; ++i) {
+                LongBuffer s = shards[i];
+                int sb = s.position() + p0;
+                for (int p = 0; p < cnt; ++p) {
+                    buf[p * N + i] = s.get(sb + p);
+                }
+            }
+            for (int p = 0; p < cnt; ++p) {
+                ok &= op.apply(words[p], ws);
+            }
+            for (int r = 0, nr = dst != null ? dst.length : N; r < nr; ++r) {
+                int i = dst != null ? dst[r] : r;
+                LongBuffer s = shards[i];
+                int sb = s.position() + p0;
+                for (int p = 0; p < cnt; ++p) {
+                    s.put(sb + p, buf[p * N + i]);
+                }
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Code words over consecutive slices of a transposition buffer
+     */
+    private BaseBlockCode[] newWords(long[] buf) {
+        BaseBlockCode[] words = new BaseBlockCode[chunk];
+        for (int p = 0; p < chunk; ++p) {
+            words[p] = base.newInstance(N, K, buf, p * N, 1);
+        }
+        return words;
+    }
+
+    /**
+     * Computes {@code shards[dst[r]] = sum over c of M[r][c] * shards[src[c]]} chunk by chunk
+     */
+    private void combine(long[][] M, long[][][] T, long[][] shards, int[] src, int[] dst, int len) {
+        for (int r = 0; r < dst.length; ++r) {
+            if (shards[dst[r]] == null) {
+                shards[dst[r]] = new long[len];
+            }
+        }
+        for (int p0 = 0; p0 < len; p0 += chunk) {
+            int p1 = Math.min(len, p0 + chunk);
+            for (int r = 0; r < dst.length; ++r) {
+                long[] d = shards[dst[r]];
+                Arrays.fill(d, p0, p1, ZERO);
+                for (int c = 0; c < src.length; ++c) {
+                    long[] s = shards[src[c]];
+                    if (T != null) {
+                        long[] t = T[r][c];
+                        for (int p = p0; p < p1; ++p) {
+                            d[p] ^= GFmul(t, s[p]);
+                        }
+                    }
+                    else {
+                        long m = M[r][c];
+                        for (int p = p0; p < p1; ++p) {
+                            d[p] ^= GFmul(s[p], m);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as above for buffers, indexed from their positions
+     */
+    private void combine(long[][] M, long[][][] T, LongBuffer[] shards, int[] src, int[] dst, int len) {
+        for (int p0 = 0; p0 < len; p0 += chunk) {
+            int p1 = Math.min(len, p0 + chunk);
+            for (int r = 0; r < dst.length; ++r) {
+                LongBuffer d = shards[dst[r]];
+                int db = d.position();
+                for (int p = p0; p < p1; ++p) {
+                    d.put(db + p, ZERO);
+                }
+                for (int c = 0; c < src.length; ++c) {
+                    LongBuffer s = shards[src[c]];
+                    int sb = s.position();
+                    if (T != null) {
+                        long[] t = T[r][c];
+                        for (int p = p0; p < p1; ++p) {
+                            d.put(db + p, d.get(db + p) ^ GFmul(t, s.get(sb + p)));
+                        }
+                    }
+                    else {
+                        long m = M[r][c];
+                        for (int p = p0; p < p1; ++p) {
+                            d.put(db + p, d.get(db + p) ^ GFmul(s.get(sb + p), m));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Multiplication tables for a coefficient matrix if they fit into the budget;
+     * worth building only for shards of at least Kernels.TABLE_MIN symbols
+     */
+    private static long[][][] tables(long[][] M) {
+        if (M.length == 0 || M.length * M[0].length > MAX_TABLES) return null;
+        long[][][] T = new long[M.length][M[0].length][];
+        for (int r = 0; r < M.length; ++r) {
+            for (int c = 0; c < M[r].length; ++c) {
+                T[r][c] = GFtable(M[r][c]);
+            }
+        }
+        return T;
+    }
+
+    private int getLength(long[][] shards) {
+        if (shards.length != N) {
+            throw new IllegalArgumentException("Expected " + N + " shards, got " + shards.length);
+        }
+        int len = -1;
+        for (long[] s : shards) {
+            if (s == null) continue;
+            if (len < 0) {
+                len = s.length;
+            }
+            else if (s.length != len) {
+                throw new IllegalArgumentException("Shards differ in length");
+            }
+        }
+        if (len < 0) {
+            throw new IllegalArgumentException("No shards");
+        }
+        return len;
+    }
+
+    private int getLength(LongBuffer[] shards) {
+        if (shards.length != N) {
+            throw new IllegalArgumentException("Expected " + N + " shards, got " + shards.length);
+        }
+        checkPresent(shards);
+        int len = shards[0].remaining();
+        for (LongBuffer s : shards) {
+            if (s.remaining() != len) {
+                throw new IllegalArgumentException("Shards differ in length");
+            }
+        }
+        return len;
+    }
+
+    private static void checkPresent(Object[] shards) {
+        for (int i = 0; i < shards.length; ++i) {
+            if (shards[i] == null) {
+                throw new IllegalArgumentException("Missing shard " + i);
+            }
+        }
+    }
+}
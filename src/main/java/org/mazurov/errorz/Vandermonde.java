@@ -16,7 +16,9 @@
 
 package org.mazurov.errorz;
 
-import java.util.ArrayList;
+import org.mazurov.errorz.DecoderStats.Outcome;
+
+import java.util.Arrays;
 
 import static org.mazurov.errorz.GF64.*;
 
@@ -29,21 +31,14 @@ import static org.mazurov.errorz.GF64.*;
 
 public class Vandermonde extends BaseBlockCode {
 
-    // This limit is set artificially low to allow for a reasonably sized
-    // pre-computed set of locators
-    private static final int MAXN = 256;
+    // Default block length
+    private static final int DEFAULT_N = 256;
 
-    // Locators
-    private static final long[] Z;
-    static {
-        Z = new long[MAXN];
-        Z[0] = ZERO;
-        long z = UNIT;
-        for (int i = 1; i < Z.length; ++i) {
-            Z[i] = z;
-            z = GFmul(z, ALPHA);
-        }
-    }
+    // Locators: 0 and powers of ALPHA, generated on demand and shared by all code words
+    private static final Locators Z = new Locators(ALPHA, Integer.MAX_VALUE);
+
+    // Error locator solver, selected at startup: -Dvandermonde.solver=bm|gauss
+    private static final boolean GAUSS = "gauss".equals(System.getProperty("vandermonde.solver", "bm"));
 
     /**
      * Create an empty code word
@@ -51,7 +46,7 @@ public class Vandermonde extends BaseBlockCode {
     public Vandermonde() {}
 
     public Vandermonde(int k) {
-        this(Z.length, k);
+        this(DEFAULT_N, k);
     }
 
     public Vandermonde(int n, int k) {
@@ -69,7 +64,7 @@ public class Vandermonde extends BaseBlockCode {
      */
     public Vandermonde(int n, int k, long[] x, int offset, int step) {
         super(n, k, x, offset, step);
-        if (n > Z.length) throw new IllegalArgumentException("Parameter n=" + n + "exceeds " + Z.length);
+        if (n > Z.size()) throw new IllegalArgumentException("Parameter n=" + n + " exceeds " + Z.size());
     }
 
     /**
@@ -96,46 +91,105 @@ public class Vandermonde extends BaseBlockCode {
     }
 
     public long getLocator(int i) {
-        return Z[i];
+        return Z.get(i);
+    }
+
+    /**
+     * Adds {@code v * Z[i]^j} to {@code S[j]} for {@code 0 <= j < m}
+     */
+    private static void addPowers(long[] S, int m, long v, int i) {
+        long[] zt = Z.table(i);
+        if (zt != null) {
+            for (int j = 0; j < m; ++j) {
+                S[j] = GFadd(S[j], v);
+                v = GFmul(zt, v);
+            }
+        }
+        else {
+            long z = Z.get(i);
+            for (int j = 0; j < m; ++j) {
+                S[j] = GFadd(S[j], v);
+                v = GFmul(v, z);
+            }
+        }
     }
 
     /**
-     * Fixes erasures
+     * Fixes erasures, at most N - K of them
+     * Values are found from the first e syndromes and the erasure locator polynomial
+     * L(x) = prod (x - Z.get(idx[t])) by a Forney-style formula:
+     * X[idx[t]] = sum over j of Q[j]*S[j] / Q(Z.get(idx[t])), where Q(x) = L(x) / (x - Z.get(idx[t]))
      * @param idx - array of erased indices
      */
     @Override
     public void decode(int[] idx) {
+        decode(idx, new DecodeWorkspace(N, K));
+    }
+
+    @Override
+    public void decode(int[] idx, DecodeWorkspace ws) {
+        ws.check(this);
+        if (idx.length > N - K) throw new IllegalArgumentException("Too many erasures: " + idx.length);
+        decode(idx, idx.length, ws);
+    }
+
+    /**
+     * Fixes the first e erasures listed in idx[]
+     * @param idx - array of erased indices
+     * @param e - number of erasures
+     * @param ws - workspace
+     */
+    private void decode(int[] idx, int e, DecodeWorkspace ws) {
+        if (e == 0) return;
+
         // Zero the indicated values (erasures)
-        for (int i=0; i<idx.length; ++i) {
+        for (int i = 0; i < e; ++i) {
             X[IDX(idx[i])] = ZERO;
         }
 
-        // Reconstruct erased values
-        long[] E = new long[idx.length];
-        for (int i=0; i<idx.length; ++i) {
-            long d = UNIT;
-            for (int j = 0; j < idx.length; ++j) {
-                if (j == i) continue;
-                d = GFmul(d, GFsub(Z[idx[i]], Z[idx[j]]));
+        // First e syndromes
+        long[] S = ws.s;
+        Arrays.fill(S, 0, e, ZERO);
+        for (int i = 0; i < N; ++i) {
+            long v = X[IDX(i)];
+            if (v == ZERO) continue;
+            addPowers(S, e, v, i);
+        }
+
+        // Erasure locator polynomial
+        long[] L = ws.p;
+        Arrays.fill(L, 0, e + 1, ZERO);
+        L[0] = UNIT;
+        for (int i = 0; i < e; ++i) {
+            long z = Z.get(idx[i]);
+            for (int j = i + 1; j > 0; --j) {
+                L[j] = GFadd(L[j - 1], GFmul(L[j], z));
             }
-            d = GFrev(d);
+            L[0] = GFmul(L[0], z);
+        }
 
-            long e = ZERO;
-            for (int k = 0; k < N; ++k) {
-                if (X[IDX(k)] == ZERO) continue;
-                long v = 1;
-                for (int j = 0; j < idx.length; ++j) {
-                    if (j == i) continue;
-                    v = GFmul(v, GFsub(Z[k], Z[idx[j]]));
-                }
-                e = GFadd(e, GFmul(X[IDX(k)], GFmul(v, d)));
+        // Numerators and denominators of erased values
+        long[] num = ws.num;
+        long[] den = ws.den;
+        for (int t = 0; t < e; ++t) {
+            long z = Z.get(idx[t]);
+            long q = L[e];
+            long p = GFmul(q, S[e - 1]);
+            long d = q;
+            for (int j = e - 1; j > 0; --j) {
+                q = GFadd(L[j], GFmul(q, z));   // Q[j-1], synthetic division
+                p = GFadd(p, GFmul(q, S[j - 1]));
+                d = GFadd(GFmul(d, z), q);      // Horner
             }
-            E[i] = e;
+            num[t] = p;
+            den[t] = d;
         }
 
         // Restore erasures
-        for (int i=0; i<idx.length; ++i) {
-            X[IDX(idx[i])] = E[i];
+        long[] rden = ws.rden;
+        GFrev(den, rden, e);
+        for (int t = 0; t < e; ++t) {
+            X[IDX(idx[t])] = GFmul(num[t], rden[t]);
         }
     }
 
@@ -143,14 +197,21 @@ public class Vandermonde extends BaseBlockCode {
      * getSyndromes
      * @return array of N - K syndromes
      */
-    private long[] getSyndromes() {
-        long[] S = new long[N - K];
+    long[] getSyndromes() {
+        return getSyndromes(new long[N - K]);
+    }
+
+    /**
+     * getSyndromes
+     * @param S - buffer receiving N - K syndromes
+     * @return S
+     */
+    private long[] getSyndromes(long[] S) {
+        Arrays.fill(S, ZERO);
         for (int i=0; i<N; ++i) {
             long v = X[IDX(i)];
-            for (int j=0; j<S.length; ++j) {
-                S[j] = GFadd(S[j], v);
-                v = GFmul(v, Z[i]);
-            }
+            if (v == ZERO) continue;
+            addPowers(S, S.length, v, i);
         }
         return S;
     }
@@ -158,9 +219,10 @@ public class Vandermonde extends BaseBlockCode {
     /**
      * doGauss - solve linear equations
      * @param A - syndrome matrix
-     * @return solution
+     * @param res - buffer receiving the monic solution, at least A.length + 1 long
+     * @return degree of the solution or -1 if there is none
      */
-    private static long[] doGauss(long[][] A) {
+    private static int doGauss(long[][] A, long[] res) {
         int e;
         for (e=0; e<A.length && e < A[e].length; ++e) {
             int i = e;
@@ -179,76 +241,251 @@ public class Vandermonde extends BaseBlockCode {
             }
             long d = GFrev(A[i][i]);
 
-            for (int j=i; j<A[i].length; ++j) {
-                A[i][j] = GFmul(A[i][j], d);
-            }
+            scale(A[i], i, 1, A[i].length - i, d);
 
             for (int k=i+1; k<A.length && i<A[k].length; ++k) {
                 long v = A[k][i];
                 int maxj = Math.min(A[i].length, A[k].length);
-                for (int j=i; j<maxj; ++j) {
-                    A[k][j] = GFadd(A[k][j], GFmul(A[i][j], v));
-                }
+                mulAdd(A[k], i, 1, A[i], i, 1, maxj - i, v);
             }
         }
 
-        long[] res = new long[e+1];
         res[e] = UNIT;
         for (int i=e-1; i>=0; --i) {
-            if (A[i].length <= e) return null;
+            if (A[i].length <= e) return -1;
             long v = ZERO;
             for (int j = e; j>i; --j) {
                 v = GFadd(v, GFmul(A[i][j], res[j]));
             }
             res[i] = v;
         }
-        return res;
+        return e;
     }
 
     /**
-     * findRoots - find all distinct roots of a polynomial
+     * findRoots - Chien search for distinct roots of a polynomial among the first N locators
+     * Term P[j]*Z[i]^j advances to the next locator when multiplied by the constant
+     * Z[j+1] = ALPHA^j; the scan stops as soon as deg(P) roots are found
      * @param P - polynomial
-     * @return array of found distinct roots
+     * @param deg - degree of the polynomial
+     * @param idx - buffer receiving indices of found roots, at least deg long
+     * @param ws - workspace
+     * @return number of roots found
      */
-    private static int[] findRoots(long[] P) {
-        ArrayList<Integer> idx = new ArrayList<>();
-        for (int i = 0; i < Z.length; ++i) {
-            long v = 0;
-            for (int j = P.length-1; j >= 0; --j) {
-                v = GFadd(GFmul(v, Z[i]), P[j]);
+    private int findRoots(long[] P, int deg, int[] idx, DecodeWorkspace ws) {
+        int cnt = 0;
+        if (deg > 0 && P[0] == ZERO) {
+            // Z[0] = 0
+            idx[cnt++] = 0;
+        }
+        long[] T = ws.terms;
+        System.arraycopy(P, 0, T, 0, deg + 1);
+        long[][] C = ws.consts;
+        long[] c = ws.zc;
+        for (int j = 1; j <= deg; ++j) {
+            C[j] = Z.table(j + 1);
+            c[j] = Z.get(j + 1);
+        }
+        for (int i = 1; i < N && cnt < deg; ++i) {
+            long v = ZERO;
+            for (int j = 0; j <= deg; ++j) {
+                v = GFadd(v, T[j]);
             }
-            if (v == 0) {
-                idx.add(i);
+            if (v == ZERO) {
+                idx[cnt++] = i;
+            }
+            for (int j = 1; j <= deg; ++j) {
+                T[j] = C[j] != null ? GFmul(C[j], T[j]) : GFmul(T[j], c[j]);
             }
         }
-        int[] res = new int[idx.size()];
-        for (int i=0; i<res.length; ++i) {
-            res[i] = idx.get(i);
-        }
-        return res;
+        return cnt;
     }
 
-    @Override
-    public boolean decode() {
-        long[] S = getSyndromes();
+    /**
+     * solveGauss - find the error locator polynomial from the Hankel syndrome matrix
+     * @param S - syndromes
+     * @return monic error locator polynomial or null
+     */
+    static long[] solveGauss(long[] S) {
+        DecodeWorkspace ws = new DecodeWorkspace(S.length, 0);
+        int deg = solveGauss(S, ws);
+        return deg < 0 ? null : Arrays.copyOf(ws.p, deg + 1);
+    }
 
+    /**
+     * solveGauss - find the error locator polynomial from the Hankel syndrome matrix
+     * @param S - syndromes
+     * @param ws - workspace receiving the monic error locator polynomial in ws.p
+     * @return degree of the error locator polynomial or -1
+     */
+    private static int solveGauss(long[] S, DecodeWorkspace ws) {
         // Construct the syndrome matrix
-        int m = N - K;
-        long[][] A = new long[m - m/2][];
+        int m = S.length;
+        long[][] A = ws.matrix(m - m/2, 1, m);
         for (int i = 0; i < A.length; ++i) {
-            A[i] = new long[m-i];
-            for (int j = 0; j < A[i].length; ++j) {
-                A[i][j] = S[i+j];
+            System.arraycopy(S, i, A[i], 0, A[i].length);
+        }
+        DecoderStats.stage(ws, DecoderStats.MATRIX);
+        return doGauss(A, ws.p);
+    }
+
+    /**
+     * solveBM - find the error locator polynomial by the Berlekamp-Massey algorithm
+     * The shortest recurrence C(x) = 1 + C[1]x + ... + C[L]x^L generating the syndromes
+     * is reversed into P(x) = x^L * C(1/x), whose roots are error locators
+     * @param S - syndromes
+     * @return monic error locator polynomial or null if 2L > S.length
+     */
+    static long[] solveBM(long[] S) {
+        DecodeWorkspace ws = new DecodeWorkspace(S.length, 0);
+        int deg = solveBM(S, S.length, ws);
+        return deg < 0 ? null : Arrays.copyOf(ws.p, deg + 1);
+    }
+
+    /**
+     * solveBM - find the error locator polynomial by the Berlekamp-Massey algorithm
+     * @param S - syndromes
+     * @param m - number of syndromes
+     * @param ws - workspace receiving the monic error locator polynomial in ws.p
+     * @return degree of the error locator polynomial or -1 if 2L > m
+     */
+    private static int solveBM(long[] S, int m, DecodeWorkspace ws) {
+        long[] C = ws.c;  // current recurrence
+        long[] B = ws.b;  // recurrence before the last length change
+        long[] T = ws.t;
+        Arrays.fill(C, ZERO);
+        Arrays.fill(B, ZERO);
+        C[0] = UNIT;
+        B[0] = UNIT;
+        int L = 0;
+        int shift = 1;
+        long b = UNIT;
+        for (int n = 0; n < m; ++n) {
+            // Discrepancy
+            long d = S[n];
+            for (int i = 1; i <= L; ++i) {
+                d = GFadd(d, GFmul(C[i], S[n - i]));
+            }
+            if (d == ZERO) {
+                shift += 1;
+                continue;
+            }
+            long coef = GFdiv(d, b);
+            if (2 * L <= n) {
+                System.arraycopy(C, 0, T, 0, C.length);
+                mulAdd(C, shift, 1, B, 0, 1, m + 1 - shift, coef);
+                long[] t = B; B = T; T = t;
+                L = n + 1 - L;
+                b = d;
+                shift = 1;
+            }
+            else {
+                mulAdd(C, shift, 1, B, 0, 1, m + 1 - shift, coef);
+                shift += 1;
+            }
+        }
+        if (2 * L > m) return -1;
+
+        long[] P = ws.p;
+        for (int j = 0; j <= L; ++j) {
+            P[j] = C[L - j];
+        }
+        return L;
+    }
+
+    @Override
+    public boolean decodeErrata(int[] idx) {
+        return decodeErrata(idx, new DecodeWorkspace(N, K));
+    }
+
+    /**
+     * Fixes erasures and errors
+     * Syndromes are combined with the erasure locator polynomial L(x) = prod (x - Z.get(idx[t]))
+     * into N - K - e syndromes of errors alone: T[j] = sum over k of L[k]*S[j+k];
+     * the errors found from them are then fixed together with erasures
+     * @param idx - array of erased indices
+     * @param ws - workspace
+     * @return true if successful
+     */
+    @Override
+    public boolean decodeErrata(int[] idx, DecodeWorkspace ws) {
+        ws.check(this);
+        int e = idx.length;
+        if (e > N - K) throw new IllegalArgumentException("Too many erasures: " + e);
+        if (e == 0) return decode(ws);
+        DecoderStats.begin(ws);
+
+        for (int i = 0; i < e; ++i) {
+            X[IDX(idx[i])] = ZERO;
+        }
+        long[] S = getSyndromes(ws.s);
+
+        // Erasure locator polynomial
+        long[] L = ws.q;
+        Arrays.fill(L, 0, e + 1, ZERO);
+        L[0] = UNIT;
+        for (int i = 0; i < e; ++i) {
+            long z = Z.get(idx[i]);
+            for (int j = i + 1; j > 0; --j) {
+                L[j] = GFadd(L[j - 1], GFmul(L[j], z));
+            }
+            L[0] = GFmul(L[0], z);
+        }
+
+        // Syndromes of errors, in place
+        int m = N - K - e;
+        for (int j = 0; j < m; ++j) {
+            long v = ZERO;
+            for (int k = 0; k <= e; ++k) {
+                v = GFadd(v, GFmul(L[k], S[j + k]));
             }
+            S[j] = v;
         }
+        DecoderStats.stage(ws, DecoderStats.SYNDROMES);
+
+        int deg = solveBM(S, m, ws);
+        DecoderStats.stage(ws, DecoderStats.SOLVE);
+        if (deg < 0) return DecoderStats.end(this, ws, Outcome.SOLVER_FAILURE, 0);
+        int[] pos = ws.idx;
+        int nroots = findRoots(ws.p, deg, pos, ws);
+        DecoderStats.stage(ws, DecoderStats.ROOTS);
+        if (nroots != deg) return DecoderStats.end(this, ws, Outcome.TOO_FEW_ROOTS, 0);
+        for (int t = 0; t < deg; ++t) {
+            for (int i = 0; i < e; ++i) {
+                // Common root of error and erasure locators
+                if (pos[t] == idx[i]) return DecoderStats.end(this, ws, Outcome.REPEATED_ROOT, 0);
+            }
+        }
+
+        // Errors followed by erasures
+        System.arraycopy(idx, 0, pos, deg, e);
+        decode(pos, deg + e, ws);
+        return DecoderStats.end(this, ws, Outcome.CORRECTED, deg + e);
+    }
+
+    @Override
+    public boolean decode() {
+        return decode(new DecodeWorkspace(N, K));
+    }
+
+    @Override
+    public boolean decode(DecodeWorkspace ws) {
+        ws.check(this);
+        DecoderStats.begin(ws);
+        long[] S = getSyndromes(ws.s);
+        DecoderStats.stage(ws, DecoderStats.SYNDROMES);
+        if (isZero(S, N - K)) return DecoderStats.end(this, ws, Outcome.CLEAN, 0);
 
-        long[] P = doGauss(A);
-        if (P == null) return false;
+        int deg = GAUSS ? solveGauss(S, ws) : solveBM(S, S.length, ws);
+        DecoderStats.stage(ws, DecoderStats.SOLVE);
+        if (deg < 0) return DecoderStats.end(this, ws, Outcome.SOLVER_FAILURE, 0);
 
-        int[] idx = findRoots(P);
-        if (idx.length != P.length - 1) return false;
-        decode(idx);
+        int[] idx = ws.idx;
+        int nroots = findRoots(ws.p, deg, idx, ws);
+        DecoderStats.stage(ws, DecoderStats.ROOTS);
+        if (nroots != deg) return DecoderStats.end(this, ws, Outcome.TOO_FEW_ROOTS, 0);
+        decode(idx, deg, ws);
 
-        return true;
+        return DecoderStats.end(this, ws, Outcome.CORRECTED, deg);
     }
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Creates code words of the same code over external storage,
+ * sharing all precomputed data with the factory.
+ *
+ */
+
+interface WordFactory {
+
+    /**
+     * Virtual constructor with the same code parameters
+     * @param x array containing the code word
+     * @param offset offset of the first element in the array
+     * @param step distance between code word elements in the array
+     * @return a new code word of the same code
+     */
+    BlockCode newWord(long[] x, int offset, int step);
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+@Name("org.mazurov.errorz.Decode")
+@Label("Decode")
+@Category("ErrorZ")
+class DecodeEvent extends jdk.jfr.Event {
+
+    @Label("Code")
+    String code;
+
+    @Label("Block Length")
+    int n;
+
+    @Label("Message Length")
+    int k;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Corrected Symbols")
+    int corrected;
+
+    @Label("Decode Time")
+    @Timespan
+    long decodeNanos;
+
+    @Label("Syndromes")
+    @Timespan
+    long syndromeNanos;
+
+    @Label("Matrix Build")
+    @Timespan
+    long matrixNanos;
+
+    @Label("Solve")
+    @Timespan
+    long solveNanos;
+
+    @Label("Root Search")
+    @Timespan
+    long rootSearchNanos;
+}
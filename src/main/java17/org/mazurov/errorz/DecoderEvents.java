@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Emits JFR events org.mazurov.errorz.Decode; switched off like any JFR event,
+ * e.g. -XX:StartFlightRecording:org.mazurov.errorz.Decode#enabled=false
+ *
+ */
+
+class DecoderEvents {
+
+    static void decoded(BlockCode code, String outcome, int corrected, long nanos, long[] stages) {
+        DecodeEvent event = new DecodeEvent();
+        if (!event.shouldCommit()) return;
+        event.code = code.getClass().getSimpleName();
+        event.n = code.getBlockLength();
+        event.k = code.getMessageLength();
+        event.outcome = outcome;
+        event.corrected = corrected;
+        event.decodeNanos = nanos;
+        event.syndromeNanos = stages[DecoderStats.SYNDROMES];
+        event.matrixNanos = stages[DecoderStats.MATRIX];
+        event.solveNanos = stages[DecoderStats.SOLVE];
+        event.rootSearchNanos = stages[DecoderStats.ROOTS];
+        event.commit();
+    }
+}
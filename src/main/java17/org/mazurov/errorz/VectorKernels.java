@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static org.mazurov.errorz.GF64.*;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ * Bulk array kernels using the Vector API.
+ * Lanes run the same Karatsuba multiplication as {@link GF64#GFmulKaratsuba(long, long)};
+ * sparse arrays fall back to scalar kernels.
+ *
+ */
+
+final class VectorKernels extends Kernels {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    void mulAdd(long[] dst, int dOff, int dStep, long[] src, int sOff, int sStep, int n, long c) {
+        if (dStep != 1 || sStep != 1 || c == ZERO || c == UNIT) {
+            super.mulAdd(dst, dOff, dStep, src, sOff, sStep, n, c);
+            return;
+        }
+        LongVector c0 = LongVector.broadcast(SPECIES, c & LO32);
+        LongVector c1 = LongVector.broadcast(SPECIES, c >>> 32);
+        LongVector c01 = c0.lanewise(VectorOperators.XOR, c1);
+        int len = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < len; i += SPECIES.length()) {
+            LongVector x = LongVector.fromArray(SPECIES, src, sOff + i);
+            LongVector d = LongVector.fromArray(SPECIES, dst, dOff + i);
+            d.lanewise(VectorOperators.XOR, mul(x, c0, c1, c01)).intoArray(dst, dOff + i);
+        }
+        for (; i < n; ++i) {
+            dst[dOff + i] ^= GFmul(src[sOff + i], c);
+        }
+    }
+
+    @Override
+    void scale(long[] x, int off, int step, int n, long c) {
+        if (step != 1 || c == UNIT) {
+            super.scale(x, off, step, n, c);
+            return;
+        }
+        LongVector c0 = LongVector.broadcast(SPECIES, c & LO32);
+        LongVector c1 = LongVector.broadcast(SPECIES, c >>> 32);
+        LongVector c01 = c0.lanewise(VectorOperators.XOR, c1);
+        int len = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < len; i += SPECIES.length()) {
+            LongVector v = LongVector.fromArray(SPECIES, x, off + i);
+            mul(v, c0, c1, c01).intoArray(x, off + i);
+        }
+        for (; i < n; ++i) {
+            x[off + i] = GFmul(x[off + i], c);
+        }
+    }
+
+    @Override
+    long dot(long[] a, int aOff, int aStep, long[] b, int bOff, int bStep, int n) {
+        if (aStep != 1 || bStep != 1) {
+            return super.dot(a, aOff, aStep, b, bOff, bStep, n);
+        }
+        LongVector lo = LongVector.zero(SPECIES);
+        LongVector hi = LongVector.zero(SPECIES);
+        int len = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < len; i += SPECIES.length()) {
+            LongVector x = LongVector.fromArray(SPECIES, a, aOff + i);
+            LongVector y = LongVector.fromArray(SPECIES, b, bOff + i);
+            LongVector x0 = x.lanewise(VectorOperators.AND, LO32);
+            LongVector x1 = x.lanewise(VectorOperators.LSHR, 32);
+            LongVector y0 = y.lanewise(VectorOperators.AND, LO32);
+            LongVector y1 = y.lanewise(VectorOperators.LSHR, 32);
+            LongVector l = clmul32(x0, y0);
+            LongVector h = clmul32(x1, y1);
+            LongVector m = clmul32(x0.lanewise(VectorOperators.XOR, x1), y0.lanewise(VectorOperators.XOR, y1))
+                    .lanewise(VectorOperators.XOR, l)
+                    .lanewise(VectorOperators.XOR, h);
+            lo = lo.lanewise(VectorOperators.XOR, l).lanewise(VectorOperators.XOR, m.lanewise(VectorOperators.LSHL, 32));
+            hi = hi.lanewise(VectorOperators.XOR, h).lanewise(VectorOperators.XOR, m.lanewise(VectorOperators.LSHR, 32));
+        }
+        long res = GF64.reduce(lo.reduceLanes(VectorOperators.XOR), hi.reduceLanes(VectorOperators.XOR));
+        if (i < n) {
+            res ^= super.dot(a, aOff + i, 1, b, bOff + i, 1, n - i);
+        }
+        return res;
+    }
+
+    /**
+     * Lanewise field multiplication by Karatsuba split on 32-bit halves
+     * @param x field elements
+     * @param y0 low halves of the second operand
+     * @param y1 high halves of the second operand
+     * @param y01 {@code y0 ^ y1}
+     * @return reduced products
+     */
+    private static LongVector mul(LongVector x, LongVector y0, LongVector y1, LongVector y01) {
+        LongVector x0 = x.lanewise(VectorOperators.AND, LO32);
+        LongVector x1 = x.lanewise(VectorOperators.LSHR, 32);
+        LongVector l = clmul32(x0, y0);
+        LongVector h = clmul32(x1, y1);
+        LongVector m = clmul32(x0.lanewise(VectorOperators.XOR, x1), y01)
+                .lanewise(VectorOperators.XOR, l)
+                .lanewise(VectorOperators.XOR, h);
+        return reduce(l.lanewise(VectorOperators.XOR, m.lanewise(VectorOperators.LSHL, 32)),
+                h.lanewise(VectorOperators.XOR, m.lanewise(VectorOperators.LSHR, 32)));
+    }
+
+    /**
+     * Lanewise carry-less product of 32-bit polynomials, see {@link GF64#clmul32(long, long)}
+     */
+    private static LongVector clmul32(LongVector x, LongVector y) {
+        LongVector x0 = x.lanewise(VectorOperators.AND, M0);
+        LongVector x1 = x.lanewise(VectorOperators.AND, M1);
+        LongVector x2 = x.lanewise(VectorOperators.AND, M2);
+        LongVector x3 = x.lanewise(VectorOperators.AND, M3);
+        LongVector y0 = y.lanewise(VectorOperators.AND, M0);
+        LongVector y1 = y.lanewise(VectorOperators.AND, M1);
+        LongVector y2 = y.lanewise(VectorOperators.AND, M2);
+        LongVector y3 = y.lanewise(VectorOperators.AND, M3);
+        LongVector z0 = x0.mul(y0).lanewise(VectorOperators.XOR, x1.mul(y3))
+                .lanewise(VectorOperators.XOR, x2.mul(y2)).lanewise(VectorOperators.XOR, x3.mul(y1));
+        LongVector z1 = x0.mul(y1).lanewise(VectorOperators.XOR, x1.mul(y0))
+                .lanewise(VectorOperators.XOR, x2.mul(y3)).lanewise(VectorOperators.XOR, x3.mul(y2));
+        LongVector z2 = x0.mul(y2).lanewise(VectorOperators.XOR, x1.mul(y1))
+                .lanewise(VectorOperators.XOR, x2.mul(y0)).lanewise(VectorOperators.XOR, x3.mul(y3));
+        LongVector z3 = x0.mul(y3).lanewise(VectorOperators.XOR, x1.mul(y2))
+                .lanewise(VectorOperators.XOR, x2.mul(y1)).lanewise(VectorOperators.XOR, x3.mul(y0));
+        return z0.lanewise(VectorOperators.AND, M0)
+                .lanewise(VectorOperators.OR, z1.lanewise(VectorOperators.AND, M1))
+                .lanewise(VectorOperators.OR, z2.lanewise(VectorOperators.AND, M2))
+                .lanewise(VectorOperators.OR, z3.lanewise(VectorOperators.AND, M3));
+    }
+
+    /**
+     * Lanewise reduction, see {@link GF64#reduce(long, long)}
+     */
+    private static LongVector reduce(LongVector lo, LongVector hi) {
+        // Bits of hi * ROOT overflowing x^64 are reduced once more
+        LongVector o = hi.lanewise(VectorOperators.LSHR, 63)
+                .lanewise(VectorOperators.XOR, hi.lanewise(VectorOperators.LSHR, 61))
+                .lanewise(VectorOperators.XOR, hi.lanewise(VectorOperators.LSHR, 60));
+        LongVector r = hi.lanewise(VectorOperators.XOR, o);
+        return lo.lanewise(VectorOperators.XOR, r)
+                .lanewise(VectorOperators.XOR, r.lanewise(VectorOperators.LSHL, 1))
+                .lanewise(VectorOperators.XOR, r.lanewise(VectorOperators.LSHL, 3))
+                .lanewise(VectorOperators.XOR, r.lanewise(VectorOperators.LSHL, 4));
+    }
+}
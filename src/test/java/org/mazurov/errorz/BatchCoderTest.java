@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+public class BatchCoderTest {
+
+    @Test
+    public void testArena() {
+        CodeSpec spec = CodeSpec.of(new Mazurov(), 64, 48);
+        int n = spec.getBlockLength();
+        int k = spec.getMessageLength();
+        int count = 1000;
+        long[] arena = new long[n * count];
+        SplittableRandom rnd = new SplittableRandom(22);
+        for (int w = 0; w < count; ++w) {
+            for (int i = 0; i < k; ++i) {
+                arena[w * n + i] = rnd.nextLong();
+            }
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            BatchCoder coder = new BatchCoder(pool, 4);
+            BatchResult res = coder.encodeAll(spec, arena, count);
+            Assert.assertEquals(0, res.getFailedCount());
+            Assert.assertTrue(res.getChunkCount() > 1);
+            long[] saved = arena.clone();
+            // Correctable errors in even words, too many errors in words divisible by 3
+            for (int w = 0; w < count; w += 2) {
+                int errors = w % 3 == 0 ? n - k : (n - k) / 2;
+                for (int e = 0; e < errors; ++e) {
+                    arena[w * n + e] ^= rnd.nextLong() | 1;
+                }
+            }
+            res = coder.decodeAll(spec, arena, count);
+            Assert.assertEquals(count, res.getWordCount());
+            for (int w = 0; w < count; ++w) {
+                if (w % 6 == 0) {
+                    Assert.assertFalse(res.isOk(w));
+                    continue;
+                }
+                Assert.assertTrue(res.isOk(w));
+                for (int i = 0; i < n; ++i) {
+                    Assert.assertEquals(saved[w * n + i], arena[w * n + i]);
+                }
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testWords() {
+        SplittableRandom rnd = new SplittableRandom(23);
+        BlockCode[] words = new BlockCode[300];
+        long[][] saved = new long[words.length][];
+        for (int w = 0; w < words.length; ++w) {
+            // Mixed codes and lengths
+            int n = 32 + w % 3 * 16;
+            BaseBlockCode base = w % 2 == 0 ? new Vandermonde() : new Mazurov();
+            words[w] = CodeSpec.of(base, n, n - 8).newWord();
+            for (int i = 0; i < n - 8; ++i) {
+                words[w].setAt(i, rnd.nextLong());
+            }
+        }
+        BatchCoder coder = new BatchCoder();
+        Assert.assertEquals(0, coder.encodeAll(words).getFailedCount());
+        for (int w = 0; w < words.length; ++w) {
+            BlockCode word = words[w];
+            saved[w] = new long[word.getBlockLength()];
+            for (int i = 0; i < saved[w].length; ++i) {
+                saved[w][i] = word.getAt(i);
+            }
+            for (int e = 0; e < 4; ++e) {
+                int i = rnd.nextInt(word.getBlockLength());
+                word.setAt(i, word.getAt(i) ^ 1);
+            }
+        }
+        BatchResult res = coder.decodeAll(Arrays.asList(words));
+        Assert.assertEquals(0, res.getFailedCount());
+        for (int w = 0; w < words.length; ++w) {
+            for (int i = 0; i < saved[w].length; ++i) {
+                Assert.assertEquals(saved[w][i], words[w].getAt(i));
+            }
+        }
+    }
+}
@@ -21,6 +21,10 @@ import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
 
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
 /**
  * Project ErrorZ
  *
@@ -73,6 +77,34 @@ public class BlockCodeTest {
         Assert.assertEquals(0, decoded);
     }
 
+    @Test
+    public void testA_RS4() {
+        Vandermonde code = new Vandermonde(256, 232);
+        int nRuns = 100;
+
+        // Both solvers must find the same locator polynomial within the half distance
+        for (int t = 0; t < nRuns; ++t) {
+            Vandermonde testCode = (Vandermonde) code.clone();
+            TestUtils.addErrors(testCode, t % 13);
+            long[] S = testCode.getSyndromes();
+            Assert.assertArrayEquals(Vandermonde.solveGauss(S), Vandermonde.solveBM(S));
+        }
+    }
+
+    @Test
+    public void testA_RS5() {
+        BlockCode code = new Vandermonde(60, 44);
+        int nRuns = 100;
+
+        // Shortened code, roots only among the first n locators
+        int decoded = TestUtils.testErrors(code, nRuns, 8);
+        Assert.assertEquals(nRuns, decoded);
+
+        code = new Mazurov(100, 84);
+        decoded = TestUtils.testErrors(code, nRuns, 8);
+        Assert.assertEquals(nRuns, decoded);
+    }
+
     @Test
     public void testB_Mazurov() {
         BlockCode code = new Mazurov(256, 248);
@@ -179,4 +211,365 @@ public class BlockCodeTest {
         Assert.assertEquals(0, decoded);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testE_Encode() {
+        // Longer codes over their own storage, so as not to disturb the shared Random sequence
+        SplittableRandom rnd = new SplittableRandom(6);
+        BaseBlockCode[] longCodes = {
+                new Vandermonde(1000, 936, new long[1000], 0, 1), new Mazurov(4096, 4032, new long[4096], 0, 1, 16)
+        };
+        for (BaseBlockCode code : longCodes) {
+            for (int i = 0; i < code.getMessageLength(); ++i) {
+                code.setAt(i, rnd.nextLong());
+            }
+            code.encode();
+        }
+        BaseBlockCode[] codes = {
+                new Vandermonde(100, 60), new Mazurov(200, 180), new Mazurov(256, 248), longCodes[0], longCodes[1]
+        };
+        for (BaseBlockCode code : codes) {
+            // Parity symbols must match those recovered as erasures
+            BaseBlockCode testCode = code.clone();
+            int[] idx = new int[code.getBlockLength() - code.getMessageLength()];
+            for (int i = 0; i < idx.length; ++i) {
+                idx[i] = code.getMessageLength() + i;
+            }
+            testCode.decode(idx);
+            for (int i = 0; i < code.getBlockLength(); ++i) {
+                Assert.assertEquals(code.getAt(i), testCode.getAt(i));
+            }
+        }
+    }
+
+    @Test
+    public void testF_Erasures() {
+        BlockCode[] codes = {
+                new Vandermonde(256, 232), new Mazurov(256, 232),
+                new Cauchy(256, 232, new Mazurov()), new Lagrange(256, 232, new Vandermonde())
+        };
+        for (BlockCode code : codes) {
+            int redundancy = code.getBlockLength() - code.getMessageLength();
+            for (int erasures : new int[] {1, redundancy / 2, redundancy}) {
+                BlockCode testCode = code.clone();
+                int[] idx = TestUtils.addErrors(testCode, erasures);
+                testCode.decode(idx);
+                for (int i = 0; i < code.getBlockLength(); ++i) {
+                    Assert.assertEquals(code.getAt(i), testCode.getAt(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testG_Workspace() {
+        BlockCode[] codes = {
+                new Vandermonde(256, 232), new Mazurov(256, 232),
+                new Cauchy(256, 232, new Mazurov()), new Lagrange(256, 232, new Vandermonde())
+        };
+        for (BlockCode code : codes) {
+            int n = code.getBlockLength();
+            int redundancy = n - code.getMessageLength();
+            long[] word = new long[n];
+            for (int i = 0; i < n; ++i) {
+                word[i] = code.getAt(i);
+            }
+            DecodeWorkspace ws = new DecodeWorkspace(n, code.getMessageLength());
+            int[] idx = new int[redundancy];
+            for (int i = 0; i < idx.length; ++i) {
+                idx[i] = i * 7 + 3;
+            }
+
+            // Minimum over windows of 100 runs after warm-up, ignoring one-off JIT allocations
+            long allocated = Long.MAX_VALUE;
+            long mark = 0;
+            for (int run = 0; run <= 400; ++run) {
+                if (run >= 100 && run % 100 == 0) {
+                    long bytes = allocatedBytes();
+                    if (run > 100) allocated = Math.min(allocated, bytes - mark);
+                    mark = bytes;
+                    if (run == 400) break;
+                }
+
+                // Errors
+                for (int i = 0; i < redundancy / 2; ++i) {
+                    code.setAt(idx[i], code.getAt(idx[i]) ^ (0x9E3779B97F4A7C15L * (run + i + 1)));
+                }
+                Assert.assertTrue(code.decode(ws));
+
+                // Erasures
+                for (int i = 0; i < redundancy; ++i) {
+                    code.setAt(idx[i], run);
+                }
+                code.decode(idx, ws);
+
+                for (int i = 0; i < n; ++i) {
+                    Assert.assertEquals(word[i], code.getAt(i));
+                }
+            }
+            if (allocated >= 0) {
+                // 100 runs, a few hundred bytes are allocated by the measurement itself
+                Assert.assertTrue(code + " allocated " + allocated, allocated < 2048);
+            }
+        }
+
+        try {
+            new Vandermonde(100, 60).decode(new DecodeWorkspace(100, 50));
+            Assert.fail();
+        }
+        catch (IllegalArgumentException e) {
+            // Mismatched workspace
+        }
+    }
+
+    @Test
+    public void testH_Erasures2D() {
+        BlockCode code = new BlockCode2D(64, 48, 64, 48, new Vandermonde());
+        int n = code.getBlockLength();
+
+        // Ten whole rows, then a few scattered symbols
+        int[] idx = new int[10 * 64 + 50];
+        for (int i = 0; i < 10 * 64; ++i) {
+            idx[i] = 64 * 3 * (i / 64) + i % 64;
+        }
+        for (int i = 10 * 64; i < idx.length; ++i) {
+            idx[i] = (i * 997) % n;
+        }
+        BlockCode testCode = code.clone();
+        for (int i : idx) {
+            testCode.setAt(i, 0);
+        }
+        testCode.decode(idx);
+        for (int i = 0; i < n; ++i) {
+            Assert.assertEquals(code.getAt(i), testCode.getAt(i));
+        }
+
+        // A 17x17 square cannot be recovered
+        idx = new int[17 * 17];
+        for (int i = 0; i < idx.length; ++i) {
+            idx[i] = 64 * (i / 17) + i % 17;
+        }
+        try {
+            code.clone().decode(idx);
+            Assert.fail();
+        }
+        catch (IllegalArgumentException e) {
+            // Unrecoverable erasures
+        }
+    }
+
+    @Test
+    public void testI_Errata() {
+        SplittableRandom rnd = new SplittableRandom(1);
+        BlockCode[] codes = {
+                new Vandermonde(256, 232), new Mazurov(256, 232),
+                new Cauchy(256, 232, new Mazurov()), new Lagrange(256, 232, new Vandermonde())
+        };
+        for (BlockCode code : codes) {
+            int n = code.getBlockLength();
+            int redundancy = n - code.getMessageLength();
+            boolean subfield = code.toString().contains("Mazurov");
+            DecodeWorkspace ws = new DecodeWorkspace(n, code.getMessageLength());
+            for (int erasures : new int[] {0, 1, 10, redundancy - 1, redundancy}) {
+                // Within the budget of 2 * errors + erasures <= redundancy, or more for Mazurov
+                int errors = subfield ? Math.max(0, redundancy - erasures - 3) : (redundancy - erasures) / 2;
+                int[] pos = new int[n];
+                for (int i = 0; i < n; ++i) {
+                    pos[i] = i;
+                }
+                for (int i = 0; i < erasures + errors; ++i) {
+                    int j = i + rnd.nextInt(n - i);
+                    int t = pos[i]; pos[i] = pos[j]; pos[j] = t;
+                }
+                int[] idx = Arrays.copyOf(pos, erasures);
+
+                BlockCode testCode = code.clone();
+                for (int i = 0; i < erasures + errors; ++i) {
+                    testCode.setAt(pos[i], testCode.getAt(pos[i]) ^ (rnd.nextLong() | 1));
+                }
+                Assert.assertTrue(code + " e=" + erasures + " t=" + errors, testCode.decodeErrata(idx, ws));
+                for (int i = 0; i < n; ++i) {
+                    Assert.assertEquals(code.getAt(i), testCode.getAt(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes random data, without the shared Random sequence
+     */
+    private static BlockCode longCode(BlockCode code, SplittableRandom rnd) {
+        for (int i = 0; i < code.getMessageLength(); ++i) {
+            code.setAt(i, rnd.nextLong());
+        }
+        code.encode();
+        return code;
+    }
+
+    @Test
+    public void testJ_Verify() {
+        SplittableRandom rnd = new SplittableRandom(1);
+        BlockCode[] codes = {
+                new Vandermonde(256, 232), new Mazurov(200, 180),
+                new Cauchy(256, 232, new Mazurov()), new Lagrange(64, 60, new Vandermonde()),
+                new BlockCode2D(32, 28, 32, 28, new Vandermonde()),
+                longCode(new Vandermonde(2100, 1000, new long[2100], 0, 1), rnd),
+                longCode(new Mazurov(2100, 1000, new long[2100], 0, 1, 16), rnd)
+        };
+        for (BlockCode code : codes) {
+            Assert.assertTrue(code.verify());
+            Assert.assertTrue(code.verifyProbabilistic());
+            Assert.assertTrue(code.decode());
+            for (int run = 0; run < 20; ++run) {
+                BlockCode testCode = code.clone();
+                int i = rnd.nextInt(code.getBlockLength());
+                testCode.setAt(i, testCode.getAt(i) ^ (rnd.nextLong() | 1));
+                Assert.assertFalse(testCode.verify());
+                Assert.assertFalse(testCode.verifyProbabilistic());
+            }
+        }
+    }
+
+    @Test
+    public void testK_Subfields() {
+        SplittableRandom rnd = new SplittableRandom(1);
+        // d, n, k, errors
+        int[][] params = { {4, 16, 8, 6}, {16, 1024, 984, 30}, {32, 300, 280, 12} };
+        for (int[] p : params) {
+            BlockCode code = new Mazurov(p[1], p[2], p[0]);
+            int n = code.getBlockLength();
+            int[] pos = new int[n];
+            for (int i = 0; i < n; ++i) {
+                pos[i] = i;
+            }
+            for (int i = 0; i < n - p[2]; ++i) {
+                int j = i + rnd.nextInt(n - i);
+                int t = pos[i]; pos[i] = pos[j]; pos[j] = t;
+            }
+
+            // Errors beyond half the redundancy
+            BlockCode testCode = code.clone();
+            for (int i = 0; i < p[3]; ++i) {
+                testCode.setAt(pos[i], testCode.getAt(pos[i]) ^ (rnd.nextLong() | 1));
+            }
+            Assert.assertTrue(code.toString(), testCode.decode());
+            for (int i = 0; i < n; ++i) {
+                Assert.assertEquals(code.getAt(i), testCode.getAt(i));
+            }
+
+            // Erasures up to the redundancy
+            testCode = code.clone();
+            testCode.decode(Arrays.copyOf(pos, n - p[2]));
+            for (int i = 0; i < n; ++i) {
+                Assert.assertEquals(code.getAt(i), testCode.getAt(i));
+            }
+        }
+
+        try {
+            new Mazurov(257, 200);
+            Assert.fail();
+        }
+        catch (IllegalArgumentException e) {
+            // Block length exceeds the subfield size
+        }
+    }
+
+    @Test
+    public void testL_LongCode() {
+        SplittableRandom rnd = new SplittableRandom(1);
+        BlockCode code = new Vandermonde(100000, 99980);
+        int n = code.getBlockLength();
+        Assert.assertTrue(code.verify());
+
+        // Errors
+        BlockCode testCode = code.clone();
+        for (int i = 0; i < 10; ++i) {
+            int p = n - 1 - rnd.nextInt(n / 2) * 2 - (i & 1);
+            testCode.setAt(p, testCode.getAt(p) ^ (rnd.nextLong() | 1));
+        }
+        Assert.assertFalse(testCode.verify());
+        Assert.assertTrue(testCode.decode());
+        for (int i = 0; i < n; ++i) {
+            Assert.assertEquals(code.getAt(i), testCode.getAt(i));
+        }
+
+        // Erasures
+        int[] idx = new int[20];
+        for (int i = 0; i < idx.length; ++i) {
+            idx[i] = i * 4999;
+        }
+        testCode.decode(idx);
+        for (int i = 0; i < n; ++i) {
+            Assert.assertEquals(code.getAt(i), testCode.getAt(i));
+        }
+    }
+
+    @Test
+    public void testM_ConversionEncode() {
+        SplittableRandom rnd = new SplittableRandom(25);
+        // Precomputed parity matrix and, for the long codes, rows computed on the fly
+        int[][] params = { {64, 48}, {3000, 1000} };
+        for (int[] nk : params) {
+            int n = nk[0];
+            int k = nk[1];
+            BlockCode[] codes = {
+                    new Cauchy(n, k, new long[n], 0, 1, new Vandermonde()),
+                    new Lagrange(n, k, new long[n], 0, 1, new Vandermonde())
+            };
+            for (BlockCode code : codes) {
+                for (int i = 0; i < k; ++i) {
+                    code.setAt(i, rnd.nextLong());
+                }
+                code.encode();
+                BlockCode testCode = code.clone();
+                Assert.assertTrue(testCode.decode());
+                int p = k + rnd.nextInt(n - k);
+                testCode.setAt(p, testCode.getAt(p) ^ 1);
+                testCode.setAt(p / 2, testCode.getAt(p / 2) ^ 2);
+                Assert.assertTrue(testCode.decode());
+                for (int i = 0; i < n; ++i) {
+                    Assert.assertEquals(code.toString(), code.getAt(i), testCode.getAt(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Bytes allocated by the current thread
+     * @return allocated bytes or -1 if not supported
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void testN_Errata2D() {
+        SplittableRandom rnd = new SplittableRandom(1);
+        BlockCode code = new BlockCode2D(64, 48, 64, 48, new Vandermonde());
+        int n = code.getBlockLength();
+
+        // Twelve whole rows erased, beyond the error capacity of columns, and errors elsewhere
+        int[] idx = new int[12 * 64];
+        for (int i = 0; i < idx.length; ++i) {
+            idx[i] = 64 * 5 * (i / 64) + i % 64;
+        }
+        BlockCode testCode = code.clone();
+        for (int i : idx) {
+            testCode.setAt(i, 0);
+        }
+        for (int t = 0; t < 300; ++t) {
+            int i = rnd.nextInt(n);
+            testCode.setAt(i, testCode.getAt(i) ^ (rnd.nextLong() | 1));
+        }
+        Assert.assertTrue(testCode.decodeErrata(idx));
+        for (int i = 0; i < n; ++i) {
+            Assert.assertEquals(code.getAt(i), testCode.getAt(i));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+public class CodeCacheTest {
+
+    @Test
+    public void testBudget() {
+        CodeCache<long[]> cache = new CodeCache<>(100, a -> a.length);
+        AtomicInteger builds = new AtomicInteger();
+
+        long[] a = cache.get("a", id -> { builds.incrementAndGet(); return new long[40]; });
+        Assert.assertSame(a, cache.get("a", id -> { builds.incrementAndGet(); return new long[40]; }));
+        cache.get("b", id -> { builds.incrementAndGet(); return new long[40]; });
+        Assert.assertEquals(2, builds.get());
+        Assert.assertEquals(2, cache.size());
+
+        // Over the budget: the cache starts over with the new entry
+        long[] c = cache.get("c", id -> new long[40]);
+        Assert.assertEquals(1, cache.size());
+        Assert.assertSame(c, cache.get("c", id -> new long[40]));
+        Assert.assertNotSame(a, cache.get("a", id -> new long[40]));
+        Assert.assertEquals(2, cache.size());
+
+        // An oversized entry is kept alone
+        cache.get("d", id -> new long[500]);
+        Assert.assertEquals(1, cache.size());
+        cache.get("e", id -> new long[1]);
+        Assert.assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+public class CodeSpecTest {
+
+    /**
+     * Encodes, damages and decodes words of a spec, each in its own slot of a shared array
+     * @return number of words restored exactly
+     */
+    private static int roundTrips(CodeSpec spec, long[] storage, int thread, int threads, int words) {
+        SplittableRandom rnd = new SplittableRandom(thread);
+        DecodeWorkspace ws = spec.newWorkspace();
+        int n = spec.getBlockLength();
+        int k = spec.getMessageLength();
+        long[] saved = new long[n];
+        int ok = 0;
+        for (int w = 0; w < words; ++w) {
+            // Interleaved words of all threads
+            BlockCode word = spec.wrap(storage, thread, threads);
+            for (int i = 0; i < k; ++i) {
+                word.setAt(i, rnd.nextLong());
+            }
+            word.encode();
+            for (int i = 0; i < n; ++i) {
+                saved[i] = word.getAt(i);
+            }
+            int[] idx = new int[(n - k) / 2];
+            for (int i = 0; i < idx.length; ++i) {
+                idx[i] = rnd.nextInt(n);
+                word.setAt(idx[i], rnd.nextLong());
+            }
+            boolean decoded = (w & 1) == 0 ? word.decode(ws) : restore(word, idx, ws);
+            for (int i = 0; i < n; ++i) {
+                decoded &= word.getAt(i) == saved[i];
+            }
+            ok += decoded ? 1 : 0;
+        }
+        return ok;
+    }
+
+    private static boolean restore(BlockCode word, int[] idx, DecodeWorkspace ws) {
+        word.decode(java.util.stream.IntStream.of(idx).distinct().toArray(), ws);
+        return true;
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        CodeSpec[] specs = {
+                CodeSpec.of(new Mazurov(), 256, 240),
+                CodeSpec.of(new Cauchy(64, 48, new long[64], 0, 1, new Vandermonde())),
+                CodeSpec.of(new Lagrange(100, 80, new long[100], 0, 1, new Mazurov()))
+        };
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (CodeSpec spec : specs) {
+                long[] storage = new long[spec.getBlockLength() * threads];
+                List<Future<Integer>> results = new ArrayList<>();
+                for (int t = 0; t < threads; ++t) {
+                    final int thread = t;
+                    results.add(pool.submit(() -> roundTrips(spec, storage, thread, threads, 50)));
+                }
+                for (Future<Integer> r : results) {
+                    Assert.assertEquals(spec.toString(), 50, (int)r.get());
+                }
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testWrap() {
+        CodeSpec spec = CodeSpec.of(new Vandermonde(), 64, 60);
+        BlockCode word = spec.newWord();
+        word.setAt(0, 1);
+        word.encode();
+        long[] x = new long[64 * 3];
+        BlockCode view = spec.wrap(x, 2, 3);
+        for (int i = 0; i < 64; ++i) {
+            x[2 + 3 * i] = word.getAt(i);
+        }
+        Assert.assertTrue(view.verify());
+        try {
+            spec.wrap(x, 3, 3);
+            Assert.fail();
+        }
+        catch (IllegalArgumentException e) {
+            // Array too short
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+public class DecoderStatsTest {
+
+    private static void damage(BlockCode code, SplittableRandom rnd, int errors) {
+        for (int i = 0; i < errors; ++i) {
+            code.setAt(i * 3, code.getAt(i * 3) ^ (rnd.nextLong() | 1));
+        }
+    }
+
+    /**
+     * Decodes a clean word, a correctable word and an uncorrectable word
+     */
+    private static void decodeThree() {
+        SplittableRandom rnd = new SplittableRandom(24);
+        Vandermonde code = new Vandermonde(64, 48, new long[64], 0, 1);
+        for (int i = 0; i < 48; ++i) {
+            code.setAt(i, rnd.nextLong());
+        }
+        code.encode();
+        DecodeWorkspace ws = new DecodeWorkspace(64, 48);
+        BlockCode word = code.clone();
+        Assert.assertTrue(word.decode(ws));
+        damage(word, rnd, 8);
+        Assert.assertTrue(word.decode(ws));
+        damage(word, rnd, 12);
+        Assert.assertFalse(word.decode(ws));
+    }
+
+    @Test
+    public void testCounters() throws Exception {
+        // Run by a separate surefire execution with -Derrorz.stats=true
+        Assume.assumeTrue(DecoderStats.isEnabled());
+        DecoderStats stats = DecoderStats.get();
+        stats.reset();
+        decodeThree();
+
+        Assert.assertEquals(3, stats.getAttempts());
+        Assert.assertEquals(1, stats.getCleanWords());
+        Assert.assertEquals(1, stats.getCorrectedWords());
+        Assert.assertEquals(8, stats.getCorrectedSymbols());
+        Assert.assertEquals(1, stats.getSolverFailures() + stats.getTooFewRoots() + stats.getRepeatedRoots());
+        Assert.assertTrue(stats.getDecodeNanos() >= stats.getSyndromeNanos() + stats.getSolveNanos());
+
+        ObjectName name = new ObjectName("org.mazurov.errorz:type=DecoderStats");
+        Assert.assertEquals(3L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Attempts"));
+    }
+
+    @Test
+    public void testDelegates() {
+        Assume.assumeTrue(DecoderStats.isEnabled());
+        DecoderStats stats = DecoderStats.get();
+        stats.reset();
+        BlockCode code = new Cauchy(64, 48, new Mazurov(64, 48, new long[64], 0, 1));
+        DecodeWorkspace ws = new DecodeWorkspace(64, 48);
+        Assert.assertTrue(code.decode(ws));
+        Assert.assertTrue(code.decodeErrata(new int[] {1, 2}, ws));
+        Assert.assertEquals(2, stats.getAttempts());
+        try {
+            code.decodeErrata(new int[17], ws);
+            Assert.fail();
+        }
+        catch (IllegalArgumentException e) {
+            // Too many erasures
+        }
+        // Attempts are reported as Cauchy's only while it decodes
+        Assert.assertNull(ws.owner);
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        Assume.assumeFalse(DecoderStats.isEnabled());
+        DecoderStats stats = DecoderStats.get();
+        decodeThree();
+        Assert.assertEquals(0, stats.getAttempts());
+        Assert.assertEquals(0, stats.getDecodeNanos());
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(
+                new ObjectName("org.mazurov.errorz:type=DecoderStats")));
+    }
+}
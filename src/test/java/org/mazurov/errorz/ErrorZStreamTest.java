@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+public class ErrorZStreamTest {
+
+    private final SplittableRandom rnd = new SplittableRandom(1);
+
+    private byte[] write(byte[] data, BaseBlockCode code, boolean background) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ErrorZOutputStream out = new ErrorZOutputStream(bytes, code, background)) {
+            int off = 0;
+            while (off < data.length) {
+                int len = Math.min(data.length - off, rnd.nextInt(5000));
+                if (len == 1) {
+                    out.write(data[off]);
+                }
+                else {
+                    out.write(data, off, len);
+                }
+                off += len;
+                if (rnd.nextInt(10) == 0) {
+                    out.flush();
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream res = new ByteArrayOutputStream();
+        byte[] buf = new byte[777];
+        int r;
+        while ((r = in.read(buf)) >= 0) {
+            res.write(buf, 0, r);
+        }
+        return res.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        BaseBlockCode code = new Mazurov(256, 240, new long[256], 0, 1);
+        for (boolean background : new boolean[] {false, true}) {
+            byte[] data = new byte[100000];
+            rnd.nextBytes(data);
+            byte[] encoded = write(data, code, background);
+            Assert.assertEquals(0, encoded.length % (8 * 256));
+
+            // Corrupt up to 5 symbols of every other frame
+            int frames = encoded.length / (8 * 256);
+            for (int f = 0; f < frames; f += 2) {
+                for (int e = 0; e < 5; ++e) {
+                    encoded[f * 8 * 256 + rnd.nextInt(8 * 256)] ^= (byte)(1 + rnd.nextInt(255));
+                }
+            }
+
+            ErrorZInputStream in = new ErrorZInputStream(new ByteArrayInputStream(encoded), code);
+            Assert.assertArrayEquals(data, readAll(in));
+            Assert.assertEquals((frames + 1) / 2, in.getCorrectedFrames());
+        }
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        BaseBlockCode code = new Vandermonde(64, 48, new long[64], 0, 1);
+        byte[] data = new byte[1000];
+        rnd.nextBytes(data);
+        byte[] encoded = write(data, code, false);
+        ErrorZInputStream in = new ErrorZInputStream(
+                new ByteArrayInputStream(Arrays.copyOf(encoded, encoded.length - 1)), code);
+        try {
+            readAll(in);
+            Assert.fail();
+        }
+        catch (IOException e) {
+            // Truncated frame
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mazurov.errorz;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.mazurov.errorz.GF64.*;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+public class GF64Test {
+
+    // Private generator, so as not to disturb the shared Random sequence of other tests
+    private final SplittableRandom rnd = new SplittableRandom(1);
+
+    private static final long[] SPECIAL = {
+            ZERO, UNIT, ALPHA, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 0xFFFFFFFFL, 0xFFFFFFFF00000000L, 27L
+    };
+
+    @Test
+    public void testMulKaratsuba() {
+        for (long a : SPECIAL) {
+            for (long b : SPECIAL) {
+                Assert.assertEquals(GFmulSerial(a, b), GFmulKaratsuba(a, b));
+            }
+        }
+        for (int t = 0; t < 100000; ++t) {
+            long a = rnd.nextLong();
+            long b = rnd.nextLong();
+            Assert.assertEquals(GFmulSerial(a, b), GFmulKaratsuba(a, b));
+        }
+    }
+
+    @Test
+    public void testMulTable() {
+        for (long c : SPECIAL) {
+            long[] t = GFtable(c);
+            for (long a : SPECIAL) {
+                Assert.assertEquals(GFmulSerial(a, c), GFmul(t, a));
+            }
+        }
+        for (int i = 0; i < 100; ++i) {
+            long c = rnd.nextLong();
+            long[] t = GFtable(c);
+            for (int j = 0; j < 1000; ++j) {
+                long a = rnd.nextLong();
+                Assert.assertEquals(GFmulSerial(a, c), GFmul(t, a));
+            }
+        }
+    }
+
+    @Test
+    public void testKernels() throws Exception {
+        if (Boolean.getBoolean("gf64.vector")) {
+            // Run from the multi-release jar with jdk.incubator.vector: the Vector API kernels must be in use
+            java.lang.reflect.Field f = GF64.class.getDeclaredField("KERNELS");
+            f.setAccessible(true);
+            Assert.assertEquals("VectorKernels", f.get(null).getClass().getSimpleName());
+        }
+        // Lengths around vector lane counts exercise tails
+        for (int n : new int[] {0, 1, 3, 5, 7, 8, 9, 17, 33, Kernels.TABLE_MIN - 1, Kernels.TABLE_MIN, 257}) {
+            long[] a = new long[2 * n];
+            long[] b = new long[2 * n];
+            for (int i = 0; i < a.length; ++i) {
+                a[i] = rnd.nextLong();
+                b[i] = rnd.nextLong();
+            }
+            long c = rnd.nextLong();
+
+            long[] d = b.clone();
+            mulAdd(d, a, c);
+            long[] s = a.clone();
+            scale(s, c);
+            long e = ZERO;
+            for (int i = 0; i < a.length; ++i) {
+                Assert.assertEquals(b[i] ^ GFmulSerial(a[i], c), d[i]);
+                Assert.assertEquals(GFmulSerial(a[i], c), s[i]);
+                e ^= GFmulSerial(a[i], b[i]);
+            }
+            Assert.assertEquals(e, dot(a, b));
+
+            // Sparse: odd elements of a against even elements of b
+            d = b.clone();
+            mulAdd(d, 0, 2, a, 1, 2, n, c);
+            s = a.clone();
+            scale(s, 1, 2, n, c);
+            e = ZERO;
+            for (int i = 0; i < n; ++i) {
+                Assert.assertEquals(b[2 * i] ^ GFmulSerial(a[2 * i + 1], c), d[2 * i]);
+                Assert.assertEquals(b[2 * i + 1], d[2 * i + 1]);
+                Assert.assertEquals(GFmulSerial(a[2 * i + 1], c), s[2 * i + 1]);
+                Assert.assertEquals(a[2 * i], s[2 * i]);
+                e ^= GFmulSerial(a[2 * i + 1], b[2 * i]);
+            }
+            Assert.assertEquals(e, dot(a, 1, 2, b, 0, 2, n));
+
+            // Dense with offsets: second half of a against first half of b
+            d = b.clone();
+            mulAdd(d, 0, 1, a, n, 1, n, c);
+            s = a.clone();
+            scale(s, n, 1, n, c);
+            e = ZERO;
+            for (int i = 0; i < n; ++i) {
+                Assert.assertEquals(b[i] ^ GFmulSerial(a[n + i], c), d[i]);
+                Assert.assertEquals(b[n + i], d[n + i]);
+                Assert.assertEquals(GFmulSerial(a[n + i], c), s[n + i]);
+                Assert.assertEquals(a[i], s[i]);
+                e ^= GFmulSerial(a[n + i], b[i]);
+            }
+            Assert.assertEquals(e, dot(a, n, 1, b, 0, 1, n));
+        }
+    }
+
+    @Test
+    public void testBatchRev() {
+        for (int n : new int[] {0, 1, 2, 100}) {
+            long[] a = new long[n];
+            for (int i = 0; i < n; ++i) {
+                a[i] = rnd.nextLong() | 1;
+            }
+            long[] res = new long[n];
+            GFrev(a, res, n);
+            for (int i = 0; i < n; ++i) {
+                Assert.assertEquals(GFrev(a[i]), res[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testFrobenius() {
+        for (int d : new int[] {0, 1, 8, 16, 63}) {
+            for (long x : SPECIAL) {
+                Assert.assertEquals(GFpow(x, 1L << d), frobenius(x, d));
+            }
+            for (int t = 0; t < 1000; ++t) {
+                long x = rnd.nextLong();
+                Assert.assertEquals(GFpow(x, 1L << d), frobenius(x, d));
+            }
+        }
+    }
+}
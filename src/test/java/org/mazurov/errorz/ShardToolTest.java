@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+public class ShardToolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRebuild() throws IOException {
+        for (String code : new String[] {"vandermonde", "mazurov"}) {
+            byte[] data = new byte[100003];
+            new SplittableRandom(1).nextBytes(data);
+            Path file = folder.getRoot().toPath().resolve("data-" + code);
+            Files.write(file, data);
+
+            ShardTool.encode(file, 12, 8, code);
+            Path[] shards = new Path[12];
+            byte[][] saved = new byte[12][];
+            for (int i = 0; i < 12; ++i) {
+                shards[i] = file.resolveSibling(file.getFileName() + "." + i);
+                saved[i] = Files.readAllBytes(shards[i]);
+            }
+            Assert.assertEquals(0, ShardTool.rebuild(file));
+
+            // Missing and truncated shards
+            Files.delete(shards[0]);
+            Files.delete(shards[5]);
+            Files.delete(shards[9]);
+            Files.write(shards[11], new byte[10]);
+            Assert.assertEquals(4, ShardTool.rebuild(file));
+            for (int i = 0; i < 12; ++i) {
+                Assert.assertArrayEquals(saved[i], Files.readAllBytes(shards[i]));
+            }
+
+            Path output = folder.getRoot().toPath().resolve("output-" + code);
+            ShardTool.join(file, output);
+            Assert.assertArrayEquals(data, Files.readAllBytes(output));
+        }
+    }
+
+    @Test
+    public void testDamagedShards() throws IOException {
+        byte[] data = new byte[40000];
+        new SplittableRandom(2).nextBytes(data);
+        Path file = folder.getRoot().toPath().resolve("data");
+        Files.write(file, data);
+
+        ShardTool.encode(file, 10, 6, "mazurov");
+        Path[] shards = new Path[10];
+        byte[][] saved = new byte[10][];
+        for (int i = 0; i < 10; ++i) {
+            shards[i] = file.resolveSibling(file.getFileName() + "." + i);
+            saved[i] = Files.readAllBytes(shards[i]);
+        }
+
+        // Full-size shards as left by an interrupted run: zeros and a single changed byte
+        Files.write(shards[2], new byte[saved[2].length]);
+        byte[] bad = saved[7].clone();
+        bad[bad.length / 2] ^= 1;
+        Files.write(shards[7], bad);
+        try {
+            ShardTool.join(file, folder.getRoot().toPath().resolve("output"));
+            Assert.fail();
+        }
+        catch (IOException e) {
+            // Damaged data shard
+        }
+
+        Assert.assertEquals(2, ShardTool.rebuild(file));
+        for (int i = 0; i < 10; ++i) {
+            Assert.assertArrayEquals(saved[i], Files.readAllBytes(shards[i]));
+            Assert.assertFalse(Files.exists(file.resolveSibling(file.getFileName() + "." + i + ".tmp")));
+        }
+        Assert.assertEquals(0, ShardTool.rebuild(file));
+
+        // Beyond the number of parity shards, damaged shards are not used
+        for (int i : new int[] {0, 3, 6, 8, 9}) {
+            Files.write(shards[i], new byte[saved[i].length]);
+        }
+        try {
+            ShardTool.rebuild(file);
+            Assert.fail();
+        }
+        catch (IOException e) {
+            // Too many missing shards
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+public class SimulatorTest {
+
+    private static BlockCode encoded(BaseBlockCode code) {
+        SplittableRandom rnd = new SplittableRandom(23);
+        for (int i = 0; i < code.getMessageLength(); ++i) {
+            code.setAt(i, rnd.nextLong());
+        }
+        code.encode();
+        return code;
+    }
+
+    @Test
+    public void testCapacity() {
+        BlockCode code = encoded(new Mazurov(256, 240, new long[256], 0, 1));
+        Simulator sim = new Simulator();
+        SimulationResult res = sim.run(code, 14, 500, 1);
+        Assert.assertEquals(500, res.getDecoded());
+        res = sim.run(code, 15, 500, 1);
+        Assert.assertEquals(500, res.getRejected());
+        Assert.assertTrue(code.verify());
+    }
+
+    @Test
+    public void testDeterministic() {
+        // Beyond the bound: a mix of rejections and miscorrections
+        BlockCode code = encoded(new Vandermonde(16, 12, new long[16], 0, 1));
+        SimulationResult one = new Simulator(Runnable::run, 1).run(code, 3, 5000, 42);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            SimulationResult four = new Simulator(pool, 4).run(code, 3, 5000, 42);
+            Assert.assertEquals(one.getRejected(), four.getRejected());
+            Assert.assertEquals(one.getFailed(), four.getFailed());
+            Assert.assertTrue(one.getRejected() > 0);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020 Oleg Mazurov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mazurov.errorz;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Project ErrorZ
+ *
+ * https://github.com/OlegMazurov/ErrorZ
+ *
+ */
+
+public class StripeCodecTest {
+
+    private final SplittableRandom rnd = new SplittableRandom(1);
+
+    private long[][] newStripe(StripeCodec codec, int len) {
+        long[][] shards = new long[codec.getShardCount()][];
+        for (int i = 0; i < codec.getDataShardCount(); ++i) {
+            shards[i] = new long[len];
+            for (int p = 0; p < len; ++p) {
+                shards[i][p] = rnd.nextLong();
+            }
+        }
+        codec.encode(shards);
+        return shards;
+    }
+
+    private static long[][] copy(long[][] shards) {
+        long[][] res = new long[shards.length][];
+        for (int i = 0; i < shards.length; ++i) {
+            res[i] = shards[i].clone();
+        }
+        return res;
+    }
+
+    @Test
+    public void testEncode() {
+        StripeCodec codec = new StripeCodec(14, 10, new Vandermonde());
+        long[][] shards = newStripe(codec, 1000);
+        for (int p = 0; p < 1000; p += 99) {
+            BlockCode word = new Vandermonde(14, 10, new long[14], 0, 1);
+            for (int i = 0; i < 10; ++i) {
+                word.setAt(i, shards[i][p]);
+            }
+            word.encode();
+            for (int i = 10; i < 14; ++i) {
+                Assert.assertEquals(word.getAt(i), shards[i][p]);
+            }
+        }
+    }
+
+    @Test
+    public void testReconstruct() {
+        for (BaseBlockCode base : new BaseBlockCode[] { new Vandermonde(), new Mazurov() }) {
+            StripeCodec codec = new StripeCodec(40, 32, base);
+            // Long and short shards with the same cached erasure pattern
+            for (int len : new int[] {5000, 100, 5000}) {
+                long[][] shards = newStripe(codec, len);
+                long[][] damaged = copy(shards);
+                boolean[] present = new boolean[40];
+                Arrays.fill(present, true);
+                for (int i : new int[] {0, 5, 31, 32, 39}) {
+                    present[i] = false;
+                    damaged[i] = null;
+                }
+                codec.reconstruct(damaged, present);
+                for (int i = 0; i < shards.length; ++i) {
+                    Assert.assertArrayEquals(shards[i], damaged[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLongCode() {
+        // Too long for a generator matrix: parity and missing shards by erasure decoding
+        StripeCodec codec = new StripeCodec(2100, 1000, new Vandermonde());
+        long[][] shards = newStripe(codec, 3);
+        for (int p = 0; p < 3; p += 2) {
+            BlockCode word = new Vandermonde(2100, 1000, new long[2100], 0, 1);
+            for (int i = 0; i < 2100; ++i) {
+                word.setAt(i, shards[i][p]);
+            }
+            Assert.assertTrue(word.verify());
+        }
+        long[][] damaged = copy(shards);
+        boolean[] present = new boolean[2100];
+        Arrays.fill(present, true);
+        for (int i : new int[] {0, 999, 1000, 2099}) {
+            present[i] = false;
+            damaged[i] = null;
+        }
+        codec.reconstruct(damaged, present);
+        for (int i = 0; i < shards.length; ++i) {
+            Assert.assertArrayEquals(shards[i], damaged[i]);
+        }
+    }
+
+    @Test
+    public void testVerifyAndRepair() {
+        StripeCodec codec = new StripeCodec(64, 48, new Mazurov());
+        long[][] shards = newStripe(codec, 3000);
+        long[][] damaged = copy(shards);
+        for (int p = 0; p < 3000; p += 7) {
+            for (int e = 0; e < 10; ++e) {
+                damaged[rnd.nextInt(64)][p] = rnd.nextLong();
+            }
+        }
+        Assert.assertTrue(codec.verifyAndRepair(damaged));
+        for (int i = 0; i < shards.length; ++i) {
+            Assert.assertArrayEquals(shards[i], damaged[i]);
+        }
+
+        damaged[3] = null;
+        try {
+            codec.verifyAndRepair(damaged);
+            Assert.fail();
+        }
+        catch (IllegalArgumentException e) {
+            // Missing shard
+        }
+    }
+
+    @Test
+    public void testBuffers() {
+        StripeCodec codec = new StripeCodec(20, 16, new Mazurov());
+        long[][] shards = newStripe(codec, 2000);
+        LongBuffer[] buffers = new LongBuffer[20];
+        for (int i = 0; i < 20; ++i) {
+            // Shards start at different positions of direct buffers
+            LongBuffer b = ByteBuffer.allocateDirect(8 * (2000 + i)).asLongBuffer();
+            b.position(i);
+            if (i < 16) {
+                b.duplicate().put(shards[i]);
+            }
+            buffers[i] = b;
+        }
+        codec.encode(buffers);
+        boolean[] present = new boolean[20];
+        Arrays.fill(present, true);
+        for (int i : new int[] {1, 7, 16, 19}) {
+            present[i] = false;
+            for (int p = 0; p < 2000; ++p) {
+                buffers[i].put(i + p, 0);
+            }
+        }
+        codec.reconstruct(buffers, present);
+        for (int i = 0; i < 20; ++i) {
+            for (int p = 0; p < 2000; ++p) {
+                Assert.assertEquals(shards[i][p], buffers[i].get(i + p));
+            }
+        }
+
+        for (int p = 0; p < 2000; p += 3) {
+            int i = rnd.nextInt(20);
+            buffers[i].put(i + p, rnd.nextLong());
+        }
+        Assert.assertTrue(codec.verifyAndRepair(buffers));
+        for (int i = 0; i < 20; ++i) {
+            for (int p = 0; p < 2000; ++p) {
+                Assert.assertEquals(shards[i][p], buffers[i].get(i + p));
+            }
+        }
+    }
+}